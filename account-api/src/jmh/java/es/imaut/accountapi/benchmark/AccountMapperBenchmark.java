@@ -0,0 +1,127 @@
+package es.imaut.accountapi.benchmark;
+
+import es.imaut.accountapi.config.ObjectMapperConfig;
+import es.imaut.accountapi.converter.StreamingMergePatch;
+import es.imaut.accountapi.domain.AccountResponse;
+import es.imaut.accountapi.domain.CreateAccountRequest;
+import es.imaut.accountapi.mapper.AccountDetailsMapper;
+import es.imaut.accountapi.mapper.AccountDetailsMapperImpl;
+import es.imaut.accountapi.mapper.AccountMapper;
+import es.imaut.accountapi.mapper.AccountMapperImpl;
+import es.imaut.accountapi.mapper.JsonMergePatcher;
+import es.imaut.accountapi.model.Account;
+import es.imaut.accountapi.model.BankDetails;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.json.JsonMergePatch;
+import java.util.HashSet;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.LongStream.rangeClosed;
+
+/**
+ * Throughput of the account mappers and of merge patches read as a JSON-P tree or by the streaming reader. Run with
+ * {@code mvn -Pjmh test-compile exec:exec} from the module; JMH options go in {@code jmh.args}, e.g.
+ * {@code -Djmh.args="AccountMapperBenchmark.merge -f 1 -prof gc"} to also report allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class AccountMapperBenchmark {
+    @State(Scope.Benchmark)
+    public static class Mappers {
+        private AnnotationConfigApplicationContext context;
+        private AccountMapper accountMapper;
+        private AccountDetailsMapper detailsMapper;
+        private CreateAccountRequest request;
+        private Account account;
+
+        @Setup
+        public void setUp() {
+            context = new AnnotationConfigApplicationContext(
+                    ObjectMapperConfig.class, JsonMergePatcher.class, AccountMapperImpl.class, AccountDetailsMapperImpl.class);
+            accountMapper = context.getBean(AccountMapper.class);
+            detailsMapper = context.getBean(AccountDetailsMapper.class);
+            request = new CreateAccountRequest();
+            request.setName("Account");
+            request.setEmail("billing@example.com");
+            request.setPhone("+34600000000");
+            request.setType("CLIENT");
+            account = accountMapper.from(request);
+            account.setId(1L);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Details {
+        @Param({ "0", "10", "100" })
+        private int bankDetails;
+        private Account account;
+
+        @Setup
+        public void setUp() {
+            account = Account.builder().id(1L).name("Account").email("billing@example.com").phone("+34600000000")
+                    .type("CLIENT").accountDetailsClientId(1L).build();
+            account.setBankDetails(rangeClosed(1, bankDetails).mapToObj(id -> BankDetails.builder()
+                    .id(id)
+                    .accountName("Account")
+                    .iban("ES%022d".formatted(id))
+                    .bic("CAIXESBB")
+                    .bankName("Bank")
+                    .account(account)
+                    .build()).collect(toCollection(HashSet::new)));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Patch {
+        private static final String SMALL = """
+                { "name": "Renamed account" }
+                """;
+        private static final String LARGE = """
+                {
+                  "name": "Renamed account",
+                  "email": "accounts@example.com",
+                  "phone": "+34611111111",
+                  "type": "SUPPLIER",
+                  "accountDetailsClientId": 2
+                }
+                """;
+
+        @Param({ "small", "large" })
+        private String size;
+        @Param({ "true", "false" })
+        private boolean streaming;
+        private JsonMergePatch patch;
+
+        @Setup
+        public void setUp() {
+            var json = "small".equals(size) ? SMALL : LARGE;
+            patch = streaming ? MergePatches.streaming(json, StreamingMergePatch::new) : MergePatches.jsonP(json);
+        }
+    }
+
+    @Benchmark
+    public Account createMapping(Mappers mappers) {
+        return mappers.accountMapper.from(mappers.request);
+    }
+
+    @Benchmark
+    public AccountResponse detailsMapping(Mappers mappers, Details details) {
+        return mappers.detailsMapper.from(details.account);
+    }
+
+    @Benchmark
+    public Account merge(Mappers mappers, Patch patch) {
+        return mappers.accountMapper.merge(patch.patch, mappers.account);
+    }
+}
@@ -0,0 +1,119 @@
+package es.imaut.accountapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the number of calls in flight and adapts the cap to observed latency. A call that completes within
+ * {@value #LATENCY_TOLERANCE} times the no-load latency while the limit is in use raises the limit by one per
+ * limit-sized window of calls; a slower one cuts it by the {@value #BACKOFF_RATIO} ratio, at most once per window, as
+ * only calls that started after the previous cut may cut again. The no-load latency is the lowest latency seen,
+ * drifting slowly towards recent latencies so it can follow a baseline that has moved, and never taken as less than a
+ * millisecond so jitter on very fast calls does not cut the limit.
+ * <p>
+ * Publishes {@code http.server.concurrency.limit}, {@code http.server.concurrency.in.flight} and
+ * {@code http.server.concurrency.rejected}, tagged with the limiter name.
+ */
+public class AdaptiveConcurrencyLimiter {
+    static final double LATENCY_TOLERANCE = 2.0;
+    static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_DRIFT = 0.001;
+    private static final long MIN_NO_LOAD_LATENCY = 1_000_000;
+    private static final int MIN_LIMIT = 1;
+
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile int limit;
+    private double estimate;
+    private double noLoadLatency = Double.NaN;
+    private long lastCut;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int maxLimit, MeterRegistry meterRegistry) {
+        this(name, initialLimit, maxLimit, meterRegistry, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int maxLimit, MeterRegistry meterRegistry,
+                               LongSupplier nanoClock) {
+        this.maxLimit = maxLimit;
+        this.nanoClock = nanoClock;
+        this.lastCut = nanoClock.getAsLong();
+        this.estimate = Math.max(MIN_LIMIT, Math.min(initialLimit, maxLimit));
+        this.limit = (int) estimate;
+        this.rejected = Counter.builder("http.server.concurrency.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("http.server.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Requests allowed in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("http.server.concurrency.in.flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit if the limit allows one more call. The permit must be released once the call completes.
+     */
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(nanoClock.getAsLong()));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long start, long latency, int concurrency) {
+        if (Double.isNaN(noLoadLatency) || latency < noLoadLatency) {
+            noLoadLatency = latency;
+        } else {
+            noLoadLatency += (latency - noLoadLatency) * BASELINE_DRIFT;
+        }
+        if (latency > Math.max(noLoadLatency, MIN_NO_LOAD_LATENCY) * LATENCY_TOLERANCE) {
+            if (start - lastCut > 0) {
+                estimate = Math.max(MIN_LIMIT, estimate * BACKOFF_RATIO);
+                lastCut = nanoClock.getAsLong();
+            }
+        } else if (2 * concurrency >= estimate) {
+            estimate = Math.min(maxLimit, estimate + 1 / estimate);
+        }
+        limit = (int) estimate;
+    }
+
+    public final class Permit {
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long start) {
+            this.start = start;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                onSample(start, nanoClock.getAsLong() - start, inFlight.getAndDecrement());
+            }
+        }
+    }
+}
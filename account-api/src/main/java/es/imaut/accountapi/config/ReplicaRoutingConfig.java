@@ -0,0 +1,67 @@
+package es.imaut.accountapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static es.imaut.accountapi.config.ReplicaRoutingDataSource.PRIMARY;
+import static es.imaut.accountapi.config.ReplicaRoutingDataSource.REPLICA;
+
+/**
+ * Opt-in ({@code replica.enabled}) routing of read-only transactions to a replica through a
+ * {@link ReplicaRoutingDataSource}. The primary pool is configured from {@code spring.datasource.*} and the replica
+ * pool from {@code replica.datasource.*}, each with its own {@code hikari} section. Both pools publish
+ * {@code hikaricp.*} metrics tagged with their pool name and report their own status under the {@code db} health
+ * component.
+ * <p>
+ * Each transaction is routed when it fetches its connection, so the persistence context must not outlive it: an open
+ * session in view would hold the connection and the entities of the first transaction of a request until the
+ * response is written, and a write after a read would run on the replica. Routing refuses to start unless
+ * {@code spring.jpa.open-in-view} is {@code false}.
+ */
+@Configuration
+@ConditionalOnProperty(value = "replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException("Replica routing needs spring.jpa.open-in-view to be false");
+        }
+        var binder = Binder.get(environment);
+        var replicaProperties = binder.bind("replica.datasource", DataSourceProperties.class)
+                .orElseThrow(() -> new IllegalStateException("Replica routing needs replica.datasource.* to be set"));
+        return new ReplicaRoutingDataSource(
+                pool(PRIMARY, properties, binder, "spring.datasource.hikari", meterRegistry),
+                pool(REPLICA, replicaProperties, binder, "replica.datasource.hikari", meterRegistry));
+    }
+
+    @Bean
+    public HealthContributor dbHealthContributor(DataSource dataSource) throws SQLException {
+        return CompositeHealthContributor.fromMap(dataSource.unwrap(ReplicaRoutingDataSource.class).getPools(),
+                DataSourceHealthIndicator::new);
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties properties, Binder binder, String prefix,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        var pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(prefix, Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
@@ -3,9 +3,12 @@ package es.imaut.accountapi.controller;
 import es.imaut.accountapi.domain.AccountResponse;
 import es.imaut.accountapi.domain.CreateAccountRequest;
 import es.imaut.accountapi.service.AccountService;
+import es.imaut.accountapi.service.IdempotencyService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.json.JsonMergePatch;
@@ -15,9 +18,14 @@ import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 @RequestMapping("/accounts")
+@Validated
 @RequiredArgsConstructor
 public class AccountController {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final AccountService service;
+    private final IdempotencyService idempotency;
 
     @GetMapping
     public ResponseEntity<List<AccountResponse>> findAll() {
@@ -29,9 +37,18 @@ public class AccountController {
         return ok(service.findById(id));
     }
 
+    /**
+     * With an {@code Idempotency-Key}, retries of the same request replay the first response instead of creating
+     * the account again.
+     */
     @PostMapping
-    public ResponseEntity<AccountResponse> create(@Valid @RequestBody CreateAccountRequest request) {
-        return ok(service.create(request));
+    public ResponseEntity<AccountResponse> create(
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(max = MAX_IDEMPOTENCY_KEY_LENGTH) String idempotencyKey,
+            @Valid @RequestBody CreateAccountRequest request) {
+        if (idempotencyKey == null) {
+            return ok(service.create(request));
+        }
+        return ok(idempotency.execute(idempotencyKey, request, AccountResponse.class, () -> service.create(request)));
     }
 
     @PatchMapping(path = "/{id}", consumes = "application/merge-patch+json")
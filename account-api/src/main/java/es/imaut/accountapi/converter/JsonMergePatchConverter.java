@@ -1,5 +1,12 @@
 package es.imaut.accountapi.converter;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
@@ -9,14 +16,32 @@ import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.stereotype.Component;
 
 import javax.json.JsonMergePatch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
 import static javax.json.Json.*;
 
 
 @Component
 public class JsonMergePatchConverter extends AbstractHttpMessageConverter<JsonMergePatch> {
+    private final JsonFactory jsonFactory;
+
     public JsonMergePatchConverter() {
         super(MediaType.valueOf("application/merge-patch+json"));
+        this.jsonFactory = null;
+    }
+
+    /**
+     * With streaming enabled, patches are read with Jackson's {@link JsonParser} into a {@link StreamingMergePatch}
+     * instead of being parsed into a JSON-P tree.
+     */
+    @Autowired
+    public JsonMergePatchConverter(ObjectMapper objectMapper, @Value("${merge-patch.streaming:true}") boolean streaming) {
+        super(MediaType.valueOf("application/merge-patch+json"));
+        this.jsonFactory = streaming ? objectMapper.getFactory() : null;
     }
 
     @Override
@@ -27,6 +52,9 @@ public class JsonMergePatchConverter extends AbstractHttpMessageConverter<JsonMe
     @Override
     protected JsonMergePatch readInternal(Class<? extends JsonMergePatch> clazz, HttpInputMessage inputMessage)
             throws HttpMessageNotReadableException {
+        if (jsonFactory != null) {
+            return readStreaming(inputMessage);
+        }
         try (var reader = createReader(inputMessage.getBody())) {
             return createMergePatch(reader.readValue());
         } catch (Exception e) {
@@ -43,4 +71,47 @@ public class JsonMergePatchConverter extends AbstractHttpMessageConverter<JsonMe
             throw new HttpMessageNotWritableException(e.getMessage(), e);
         }
     }
+
+    private StreamingMergePatch readStreaming(HttpInputMessage inputMessage) {
+        try (var parser = jsonFactory.createParser(inputMessage.getBody())) {
+            var token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "No content to map due to end-of-input");
+            }
+            var value = readValue(parser, token);
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after merge patch");
+            }
+            return new StreamingMergePatch(value);
+        } catch (Exception e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), inputMessage);
+        }
+    }
+
+    private Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case START_OBJECT -> {
+                var object = new LinkedHashMap<String, Object>();
+                while (parser.nextToken() == FIELD_NAME) {
+                    var name = parser.currentName();
+                    object.put(name, readValue(parser, parser.nextToken()));
+                }
+                yield object;
+            }
+            case START_ARRAY -> {
+                var array = new ArrayList<>();
+                for (var next = parser.nextToken(); next != END_ARRAY; next = parser.nextToken()) {
+                    array.add(readValue(parser, next));
+                }
+                yield array;
+            }
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new JsonParseException(parser, "Unexpected token " + token);
+        };
+    }
 }
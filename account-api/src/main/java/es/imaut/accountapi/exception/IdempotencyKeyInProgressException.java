@@ -0,0 +1,9 @@
+package es.imaut.accountapi.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+@ResponseStatus(value = CONFLICT, reason = "A request with this Idempotency-Key is still in progress")
+public class IdempotencyKeyInProgressException extends RuntimeException {
+}
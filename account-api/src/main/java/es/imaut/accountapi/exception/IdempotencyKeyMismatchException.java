@@ -0,0 +1,9 @@
+package es.imaut.accountapi.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+@ResponseStatus(value = UNPROCESSABLE_ENTITY, reason = "Idempotency-Key was already used for a different request")
+public class IdempotencyKeyMismatchException extends RuntimeException {
+}
@@ -0,0 +1,140 @@
+package es.imaut.accountapi.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import es.imaut.accountapi.converter.StreamingMergePatch;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.json.JsonMergePatch;
+import javax.json.JsonNumber;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * Applies a JSON merge patch (RFC 7386) directly onto an existing bean, setting only the properties the patch
+ * touches. Writable properties are introspected once per class with the application {@link ObjectMapper}, so
+ * property names and ignored properties follow the same rules as JSON (de)serialization. Identifiers and
+ * versions are never patched.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonMergePatcher {
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, Map<String, BeanPropertyDefinition>> properties = new ConcurrentHashMap<>();
+
+    public <T> T apply(JsonMergePatch patch, T target) {
+        merge(fields(patch), target);
+        return target;
+    }
+
+    /**
+     * Resolves the patch against {@code type} without a target instance: returns the writable properties it sets,
+     * keyed by Java property name, with values converted to the property types. Nested objects replace the current
+     * value instead of being merged into it.
+     */
+    public Map<String, Object> changes(JsonMergePatch patch, Class<?> type) {
+        var writable = properties.computeIfAbsent(type, this::introspect);
+        var changes = new LinkedHashMap<String, Object>();
+        fields(patch).forEach((name, value) -> {
+            var property = writable.get(name);
+            if (property != null) {
+                changes.put(property.getInternalName(), propertyValue(value, property, null));
+            }
+        });
+        return changes;
+    }
+
+    private Map<?, ?> fields(JsonMergePatch patch) {
+        var value = patch instanceof StreamingMergePatch streaming ? streaming.value() : plain(patch.toJsonValue());
+        if (!(value instanceof Map<?, ?> fields)) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+        return fields;
+    }
+
+    private void merge(Map<?, ?> patch, Object target) {
+        var writable = properties.computeIfAbsent(target.getClass(), this::introspect);
+        patch.forEach((name, value) -> {
+            var property = writable.get(name);
+            if (property != null) {
+                property.getSetter().setValue(target, propertyValue(value, property, target));
+            }
+        });
+    }
+
+    private Object propertyValue(Object value, BeanPropertyDefinition property, Object target) {
+        var type = property.getRawPrimaryType();
+        if (value == null) {
+            return null;
+        } else if (value instanceof String || value instanceof Boolean) {
+            return type.isInstance(value) ? value : convert(value, property);
+        } else if (value instanceof Number number) {
+            return numberOf(number, property);
+        } else if (value instanceof Map<?, ?> fields) {
+            var current = target != null && property.hasGetter() ? property.getGetter().getValue(target) : null;
+            if (current == null || property.getPrimaryType().isContainerType()) {
+                return convert(value, property);
+            }
+            merge(fields, current);
+            return current;
+        }
+        return convert(value, property);
+    }
+
+    private Object numberOf(Number value, BeanPropertyDefinition property) {
+        var type = property.getRawPrimaryType();
+        if (BigDecimal.class.equals(type)) {
+            return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+        } else if (Long.class.equals(type) || long.class.equals(type)) {
+            return value.longValue();
+        } else if (Integer.class.equals(type) || int.class.equals(type)) {
+            return value.intValue();
+        }
+        return convert(value, property);
+    }
+
+    private Object convert(Object value, BeanPropertyDefinition property) {
+        return objectMapper.convertValue(value, property.getPrimaryType());
+    }
+
+    private Object plain(JsonValue value) {
+        return switch (value.getValueType()) {
+            case OBJECT -> {
+                var object = new LinkedHashMap<String, Object>();
+                value.asJsonObject().forEach((name, field) -> object.put(name, plain(field)));
+                yield object;
+            }
+            case ARRAY -> value.asJsonArray().stream().map(this::plain).toList();
+            case STRING -> ((JsonString) value).getString();
+            case NUMBER -> ((JsonNumber) value).bigDecimalValue();
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case NULL -> null;
+        };
+    }
+
+    private Map<String, BeanPropertyDefinition> introspect(Class<?> type) {
+        var config = objectMapper.getDeserializationConfig();
+        return config.introspect(config.constructType(type)).findProperties().stream()
+                .filter(BeanPropertyDefinition::hasSetter)
+                .filter(p -> !p.hasField() || !p.getField().hasAnnotation(Id.class))
+                .filter(p -> !p.hasField() || !p.getField().hasAnnotation(Version.class))
+                .peek(p -> {
+                    p.getSetter().fixAccess(true);
+                    if (p.hasGetter()) {
+                        p.getGetter().fixAccess(true);
+                    }
+                })
+                .collect(toUnmodifiableMap(BeanPropertyDefinition::getName, identity()));
+    }
+}
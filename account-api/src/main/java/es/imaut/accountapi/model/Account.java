@@ -10,8 +10,8 @@ import java.util.Objects;
 import java.util.Set;
 
 import static jakarta.persistence.CascadeType.ALL;
-import static jakarta.persistence.FetchType.EAGER;
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static jakarta.persistence.FetchType.LAZY;
+import static jakarta.persistence.GenerationType.TABLE;
 
 @Entity
 @Table(name = "account")
@@ -23,7 +23,9 @@ import static jakarta.persistence.GenerationType.IDENTITY;
 @AllArgsConstructor
 public class Account {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = TABLE, generator = "account_id")
+    @TableGenerator(name = "account_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "account", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @NotBlank
@@ -43,7 +45,8 @@ public class Account {
     private String type;
     @Column(name = "account_details_client_id")
     private Long accountDetailsClientId;
-    @OneToMany(fetch = EAGER, cascade = ALL, mappedBy = "account")
+    @OneToMany(fetch = LAZY, cascade = ALL, mappedBy = "account")
+    @ToString.Exclude
     private Set<BankDetails> bankDetails;
 
     @Override
@@ -9,7 +9,7 @@ import lombok.*;
 
 import java.util.Objects;
 
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static jakarta.persistence.GenerationType.TABLE;
 
 @Entity
 @Table(name = "bank_details")
@@ -21,7 +21,9 @@ import static jakarta.persistence.GenerationType.IDENTITY;
 @AllArgsConstructor
 public class BankDetails {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = TABLE, generator = "bank_details_id")
+    @TableGenerator(name = "bank_details_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "bank_details", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @NotEmpty
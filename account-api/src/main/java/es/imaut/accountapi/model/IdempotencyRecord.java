@@ -0,0 +1,27 @@
+package es.imaut.accountapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "idempotency_key")
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+    @Column(name = "request_hash")
+    private String requestHash;
+    @Lob
+    @Column(name = "response")
+    private String response;
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
@@ -1,9 +1,42 @@
 package es.imaut.accountapi.repository;
 
 import es.imaut.accountapi.model.Account;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
+    @Override
+    @EntityGraph(attributePaths = "bankDetails")
+    List<Account> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "bankDetails")
+    Optional<Account> findById(Long id);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.id from Account a")
+    Stream<Long> streamAllIds();
+
+    @Modifying
+    @Transactional
+    @Query("delete from BankDetails b where b.account.id = :id")
+    int purgeBankDetailsById(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Account a where a.id = :id")
+    int purgeById(Long id);
 }
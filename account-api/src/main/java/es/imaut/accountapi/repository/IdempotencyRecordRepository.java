@@ -0,0 +1,52 @@
+package es.imaut.accountapi.repository;
+
+import es.imaut.accountapi.domain.IdempotentResponse;
+import es.imaut.accountapi.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    /**
+     * Claims a key with a plain {@code INSERT}, so a key already claimed elsewhere fails on the primary key instead
+     * of being merged.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_key (idempotency_key, request_hash, created_at) values (:key, :requestHash, :createdAt)",
+            nativeQuery = true)
+    int claim(String key, String requestHash, Instant createdAt);
+
+    /**
+     * Reads a claim as a value rather than an entity, so polling sees updates even within one persistence context.
+     */
+    @Query("select new es.imaut.accountapi.domain.IdempotentResponse(r.requestHash, r.response, r.createdAt) "
+            + "from IdempotencyRecord r where r.idempotencyKey = :key")
+    Optional<IdempotentResponse> findResponse(String key);
+
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.response = :response where r.idempotencyKey = :key")
+    int complete(String key, String response);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.response is null")
+    int release(String key);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.createdAt < :before")
+    int purgeByKeyCreatedBefore(String key, Instant before);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.createdAt < :before")
+    int purgeCreatedBefore(Instant before);
+}
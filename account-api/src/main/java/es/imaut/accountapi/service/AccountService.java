@@ -8,6 +8,7 @@ import es.imaut.accountapi.mapper.AccountMapper;
 import es.imaut.accountapi.repository.AccountRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.json.JsonMergePatch;
 import java.util.List;
@@ -18,21 +19,33 @@ public class AccountService {
     private final AccountRepository repository;
     private final AccountMapper accountMapper;
     private final AccountDetailsMapper detailsMapper;
+    private final IdFilter idFilter;
 
+    @Transactional(readOnly = true)
     public List<AccountResponse> findAll() {
         return repository.findAll().stream().map(detailsMapper::from).toList();
     }
 
+    /**
+     * Ids the {@link IdFilter} knows to be absent are rejected before a transaction is started. Others are loaded,
+     * bank details included, in the repository's own read-only transaction.
+     */
     public AccountResponse findById(Long id) {
-        return repository.findById(id)
-                .map(detailsMapper::from)
-                .orElseThrow(AccountNotFoundException::new);
+        if (!idFilter.mightContain(id)) {
+            throw new AccountNotFoundException();
+        }
+        var account = repository.findById(id);
+        idFilter.recordLookup(account.isPresent());
+        return account.map(detailsMapper::from).orElseThrow(AccountNotFoundException::new);
     }
 
     public AccountResponse create(CreateAccountRequest request) {
-        return detailsMapper.from(repository.save(accountMapper.from(request)));
+        var account = repository.save(accountMapper.from(request));
+        idFilter.add(account.getId());
+        return detailsMapper.from(account);
     }
 
+    @Transactional
     public AccountResponse update(Long id, JsonMergePatch patch) {
         return repository.findById(id)
                 .map(c -> accountMapper.merge(patch, c))
@@ -41,9 +54,22 @@ public class AccountService {
                 .orElseThrow(AccountNotFoundException::new);
     }
 
+    /**
+     * Removes the account and all of its bank details with two set-based {@code DELETE} statements, without loading
+     * either. Deleting an account that does not exist is a no-op.
+     */
+    @Transactional
     public void delete(Long id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
-        }
+        repository.purgeBankDetailsById(id);
+        repository.purgeById(id);
+    }
+
+    /**
+     * Rebuilds the {@link IdFilter} from the id column, streamed in one transaction. It is not read-only, so it reads
+     * from the primary even when read-only transactions go to a replica, and a lagging replica cannot drop ids.
+     */
+    @Transactional
+    public void rebuildIdFilter() {
+        idFilter.rebuild(repository.count(), repository::streamAllIds);
     }
 }
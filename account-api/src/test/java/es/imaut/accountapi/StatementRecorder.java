@@ -0,0 +1,73 @@
+package es.imaut.accountapi;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps the application data source and records the SQL of every statement it prepares, so integration tests can
+ * enforce how many statements a single HTTP call may issue. Import it into a Spring Boot test and wrap the call in
+ * {@link #record(Runnable)}. A JDBC batch counts once.
+ */
+public class StatementRecorder implements BeanPostProcessor {
+    private static final Set<String> PREPARING = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTING = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "addBatch");
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof RecordingDataSource)) {
+            return new RecordingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    public List<String> record(Runnable call) {
+        statements.clear();
+        call.run();
+        return List.copyOf(statements);
+    }
+
+    private <T> T recording(T target, Class<T> type, Set<String> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    if (methods.contains(method.getName()) && args != null && args[0] instanceof String sql) {
+                        statements.add(sql);
+                    }
+                    try {
+                        var result = method.invoke(target, args);
+                        return "createStatement".equals(method.getName())
+                                ? recording((Statement) result, Statement.class, EXECUTING)
+                                : result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }));
+    }
+
+    private class RecordingDataSource extends DelegatingDataSource {
+        RecordingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recording(super.getConnection(), Connection.class, PREPARING);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recording(super.getConnection(username, password), Connection.class, PREPARING);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package es.imaut.accountapi.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "concurrency-limit.enabled=true",
+        "concurrency-limit.read.initial-limit=2",
+        "concurrency-limit.read.max-limit=2",
+        "concurrency-limit.retry-after=3s"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ConcurrencyLimitConfigTest {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private WebTestClient webClient;
+    @Autowired
+    @Qualifier("readConcurrencyLimiter")
+    private AdaptiveConcurrencyLimiter reads;
+    private final List<AdaptiveConcurrencyLimiter.Permit> held = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        held.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+
+    @Test
+    @DisplayName("IT: GET /accounts should return 200 OK under the read limit")
+    void getAccountsShouldReturn200OkUnderTheReadLimit() {
+        webClient.get().uri("http://localhost:" + port + "/accounts").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("IT: GET /accounts should return 503 Service Unavailable with Retry-After over the read limit")
+    void getAccountsShouldReturn503ServiceUnavailableWithRetryAfterOverTheReadLimit() {
+        exhaustReads();
+        webClient.get().uri("http://localhost:" + port + "/accounts").exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals(RETRY_AFTER, "3")
+                .expectBody().jsonPath("$.message").isEqualTo("Too many concurrent requests");
+    }
+
+    @Test
+    @DisplayName("IT: writes should not be limited by reads in flight")
+    void writesShouldNotBeLimitedByReadsInFlight() {
+        exhaustReads();
+        webClient.delete().uri("http://localhost:" + port + "/accounts/1").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("IT: actuator should not be limited and should publish limiter metrics")
+    void actuatorShouldNotBeLimitedAndShouldPublishLimiterMetrics() {
+        exhaustReads();
+        webClient.get().uri("http://localhost:" + port + "/accounts").exchange()
+                .expectStatus().isEqualTo(503);
+        webClient.get().uri("http://localhost:" + port + "/actuator/health").exchange()
+                .expectStatus().isOk();
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.rejected?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").value(value -> assertThat((Double) value).isPositive());
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.in.flight?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isEqualTo(2.0);
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.limit?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isEqualTo(2.0);
+    }
+
+    private void exhaustReads() {
+        while (reads.getInFlight() < reads.getLimit()) {
+            reads.tryAcquire().ifPresent(held::add);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package es.imaut.accountapi.config;
+
+import es.imaut.accountapi.domain.CreateAccountRequest;
+import es.imaut.accountapi.exception.AccountNotFoundException;
+import es.imaut.accountapi.service.AccountService;
+import es.imaut.accountapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static es.imaut.accountapi.config.IdFilterConfig.ACCOUNT_FILTER;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@SpringBootTest(properties = { "id-filter.enabled=true", "id-filter.recent-ids=0" })
+@ActiveProfiles("test")
+class IdFilterConfigTest {
+    private static final String INSERT_ACCOUNT = "insert into account (id, name, type) values (?, 'Account', 'Self Employed')";
+    @Autowired
+    private AccountService service;
+    @Autowired
+    private IdFilter idFilter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update(INSERT_ACCOUNT, 100000L);
+        jdbcTemplate.update(INSERT_ACCOUNT, 100002L);
+        service.rebuildIdFilter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from account");
+    }
+
+    @Test
+    @DisplayName("IT: find by id should answer absent ids from the filter")
+    void findByIdShouldAnswerAbsentIdsFromTheFilter() {
+        var absent = lookups("absent");
+        assertThatThrownBy(() -> service.findById(100001L))
+                .isInstanceOf(AccountNotFoundException.class);
+        assertThat(lookups("absent")).isEqualTo(absent + 1);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should find existing and created accounts")
+    void findByIdShouldFindExistingAndCreatedAccounts() {
+        var request = new CreateAccountRequest();
+        request.setName("Created");
+        request.setType("Self Employed");
+        var created = service.create(request);
+        var present = lookups("present");
+        assertThat(service.findById(100000L).getName()).isEqualTo("Account");
+        assertThat(service.findById(created.getId()).getName()).isEqualTo("Created");
+        assertThat(lookups("present")).isEqualTo(present + 2);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should look up ids above the highest rebuilt id")
+    void findByIdShouldLookUpIdsAboveTheHighestRebuiltId() {
+        jdbcTemplate.update(INSERT_ACCOUNT, 100003L);
+        assertThat(service.findById(100003L).getName()).isEqualTo("Account");
+    }
+
+    @Test
+    @DisplayName("IT: rebuild should drop deleted ids")
+    void rebuildShouldDropDeletedIds() {
+        service.delete(100000L);
+        assertThat(idFilter.mightContain(100000L)).isTrue();
+        service.rebuildIdFilter();
+        assertThat(idFilter.mightContain(100000L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("IT: expected false positive rate should be published")
+    void expectedFalsePositiveRateShouldBePublished() {
+        assertThat(meterRegistry.get("id.filter.expected.false.positive.rate").tag("name", ACCOUNT_FILTER).gauge().value())
+                .isBetween(0.0, 0.01);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("id.filter.lookups").tag("name", ACCOUNT_FILTER).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,108 @@
+package es.imaut.accountapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.imaut.accountapi.domain.AccountResponse;
+import es.imaut.accountapi.domain.CreateAccountRequest;
+import es.imaut.accountapi.exception.IdempotencyKeyInProgressException;
+import es.imaut.accountapi.exception.IdempotencyKeyMismatchException;
+import es.imaut.accountapi.repository.IdempotencyRecordRepository;
+import es.imaut.accountapi.service.AccountService;
+import es.imaut.accountapi.service.IdempotencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@SpringBootTest(properties = "idempotency.database.enabled=true")
+@ActiveProfiles("test")
+class IdempotencyConfigTest {
+    @Autowired
+    private IdempotencyService idempotency;
+    @Autowired
+    private IdempotencyRecordRepository repository;
+    @Autowired
+    private AccountService service;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private IdempotencyService otherInstance;
+    private final AtomicInteger creates = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        otherInstance = new IdempotencyService(100, Duration.ofHours(1), repository, Duration.ofMillis(200),
+                objectMapper, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from idempotency_key");
+        jdbcTemplate.update("delete from account");
+    }
+
+    @Test
+    @DisplayName("IT: a retry reaching another instance should replay the stored response")
+    void aRetryReachingAnotherInstanceShouldReplayTheStoredResponse() {
+        var request = request("First");
+        var first = idempotency.execute("replayed", request, AccountResponse.class, () -> create(request));
+        var retry = otherInstance.execute("replayed", request, AccountResponse.class, () -> create(request));
+        assertThat(retry).isEqualTo(first);
+        assertThat(creates.get()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from account", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("IT: another instance should reject a key reused for a different request")
+    void anotherInstanceShouldRejectAKeyReusedForADifferentRequest() {
+        var request = request("First");
+        idempotency.execute("reused", request, AccountResponse.class, () -> create(request));
+        assertThatThrownBy(() -> otherInstance.execute("reused", request("Other"), AccountResponse.class, () -> create(request)))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+    }
+
+    @Test
+    @DisplayName("IT: another instance should not run a request whose key is still in progress")
+    void anotherInstanceShouldNotRunARequestWhoseKeyIsStillInProgress() {
+        var request = request("First");
+        assertThatThrownBy(() -> idempotency.execute("in-progress", request, AccountResponse.class,
+                () -> otherInstance.execute("in-progress", request, AccountResponse.class, () -> create(request))))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        assertThat(creates.get()).isZero();
+        assertThat(repository.findResponse("in-progress")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("IT: expired keys should be purged")
+    void expiredKeysShouldBePurged() {
+        repository.claim("expired", "hash", Instant.now().minus(Duration.ofDays(2)));
+        repository.claim("current", "hash", Instant.now());
+        assertThat(repository.purgeCreatedBefore(Instant.now().minus(Duration.ofDays(1)))).isEqualTo(1);
+        assertThat(repository.findResponse("expired")).isEmpty();
+        assertThat(repository.findResponse("current")).isPresent();
+    }
+
+    private AccountResponse create(CreateAccountRequest request) {
+        creates.incrementAndGet();
+        return service.create(request);
+    }
+
+    private static CreateAccountRequest request(String name) {
+        var request = new CreateAccountRequest();
+        request.setName(name);
+        request.setType("Self Employed");
+        return request;
+    }
+}
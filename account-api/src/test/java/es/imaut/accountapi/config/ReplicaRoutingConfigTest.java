@@ -0,0 +1,155 @@
+package es.imaut.accountapi.config;
+
+import es.imaut.accountapi.domain.AccountResponse;
+import es.imaut.accountapi.service.AccountService;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+
+import static es.imaut.accountapi.config.ReplicaRoutingDataSource.PRIMARY;
+import static es.imaut.accountapi.config.ReplicaRoutingDataSource.REPLICA;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "replica.enabled=true",
+        "replica.datasource.url=jdbc:h2:mem:account-api-replica",
+        "replica.datasource.username=sa",
+        "replica.datasource.password=sa",
+        "replica.datasource.driver-class-name=org.h2.Driver"
+})
+@AutoConfigureMockMvc
+@Import(ReplicaRoutingConfigTest.ReadThenWriteController.class)
+@ActiveProfiles("test")
+class ReplicaRoutingConfigTest {
+    private static final String INSERT_ACCOUNT = "insert into account (id, name, type) values (1, ?, 'Self Employed')";
+    @Autowired
+    private AccountService service;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var pools = dataSource.unwrap(ReplicaRoutingDataSource.class).getPools();
+        primary = new JdbcTemplate(pools.get(PRIMARY));
+        replica = new JdbcTemplate(pools.get(REPLICA));
+        var liquibase = new SpringLiquibase();
+        liquibase.setDataSource(pools.get(REPLICA));
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.afterPropertiesSet();
+        primary.update(INSERT_ACCOUNT, "Primary");
+        replica.update(INSERT_ACCOUNT, "Replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        primary.update("delete from account");
+        replica.update("delete from account");
+    }
+
+    @Test
+    @DisplayName("IT: find by id should read from replica")
+    void findByIdShouldReadFromReplica() {
+        assertThat(service.findById(1L).getName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: find all should read from replica")
+    void findAllShouldReadFromReplica() {
+        assertThat(service.findAll().get(0).getName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: update should write to and read back from primary")
+    void updateShouldWriteToAndReadBackFromPrimary() {
+        var result = service.update(1L, createMergePatch(createObjectBuilder().add("type", "Company").build()));
+        assertThat(result.getName()).isEqualTo("Primary");
+        assertThat(primary.queryForObject("select type from account where id = 1", String.class)).isEqualTo("Company");
+        assertThat(replica.queryForObject("select type from account where id = 1", String.class)).isEqualTo("Self Employed");
+    }
+
+    @Test
+    @DisplayName("IT: reads after a write in the same request should stay on primary")
+    void readsAfterAWriteInTheSameRequestShouldStayOnPrimary() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(service.findById(1L).getName()).isEqualTo("Replica");
+        service.update(1L, createMergePatch(createObjectBuilder().add("type", "Company").build()));
+        assertThat(service.findById(1L).getName()).isEqualTo("Primary");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(service.findById(1L).getName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: a write after a read in the same request should go to primary")
+    void aWriteAfterAReadInTheSameRequestShouldGoToPrimary() throws Exception {
+        mvc.perform(post("/read-then-write/1").param("type", "Company"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Primary"));
+        assertThat(primary.queryForObject("select type from account where id = 1", String.class)).isEqualTo("Company");
+        assertThat(replica.queryForObject("select type from account where id = 1", String.class)).isEqualTo("Self Employed");
+    }
+
+    @Test
+    @DisplayName("IT: health should be reported per pool")
+    void healthShouldBeReportedPerPool() {
+        assertThat(healthEndpoint.healthForPath("db", PRIMARY).getStatus()).isEqualTo(Status.UP);
+        assertThat(healthEndpoint.healthForPath("db", REPLICA).getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    @DisplayName("IT: connection pool metrics should be published per pool")
+    void connectionPoolMetricsShouldBePublishedPerPool() {
+        service.findById(1L);
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", PRIMARY).gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", REPLICA).gauge()).isNotNull();
+    }
+
+    @RestController
+    static class ReadThenWriteController {
+        private final AccountService service;
+
+        ReadThenWriteController(AccountService service) {
+            this.service = service;
+        }
+
+        @PostMapping("/read-then-write/{id}")
+        public AccountResponse readThenWrite(@PathVariable Long id, @RequestParam String type) {
+            service.findById(id);
+            return service.update(id, createMergePatch(createObjectBuilder().add("type", type).build()));
+        }
+    }
+}
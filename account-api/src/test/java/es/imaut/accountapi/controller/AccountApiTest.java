@@ -1,6 +1,7 @@
 package es.imaut.accountapi.controller;
 
 import es.imaut.accountapi.RandomAccountExtension;
+import es.imaut.accountapi.StatementRecorder;
 import es.imaut.accountapi.domain.AccountResponse;
 import es.imaut.accountapi.domain.CreateAccountRequest;
 import io.github.glytching.junit.extension.random.Random;
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
@@ -18,9 +20,11 @@ import org.springframework.test.context.jdbc.SqlGroup;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.util.List;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static es.imaut.accountapi.controller.AccountController.IDEMPOTENCY_KEY;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -30,6 +34,7 @@ import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TE
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 @AutoConfigureWebTestClient
+@Import(StatementRecorder.class)
 @ExtendWith({ RandomAccountExtension.class })
 @ActiveProfiles("test")
 class AccountApiTest {
@@ -38,6 +43,8 @@ class AccountApiTest {
     private int port;
     @Autowired
     private WebTestClient webClient;
+    @Autowired
+    private StatementRecorder statementRecorder;
     private final Supplier<String> accountsUrl = () -> url.apply(port) + "/accounts";
     private final Supplier<String> accountsIdUrl = () -> url.apply(port) + "/accounts/%d";
 
@@ -48,6 +55,23 @@ class AccountApiTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    @DisplayName("IT: GET /accounts should be recorded in persistence metrics")
+    void getAccountsShouldBeRecordedInPersistenceMetrics() {
+        webClient.get().uri(accountsUrl.get()).exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hibernate.statements?tag=status:prepared").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/spring.data.repository.invocations"
+                        + "?tag=repository:AccountRepository&tag=state:SUCCESS").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hikaricp.connections.acquire").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+    }
+
     @Test
     @DisplayName("IT: GET /accounts should return empty list")
     void getAccountsShouldReturnEmptyList() {
@@ -114,6 +138,35 @@ class AccountApiTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    @DisplayName("IT: POST /accounts retried with the same Idempotency-Key should create one account")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    void postAccountsRetriedWithTheSameIdempotencyKeyShouldCreateOneAccount(@Random CreateAccountRequest request) {
+        var key = UUID.randomUUID().toString();
+        var first = webClient.post().uri(accountsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectBody(AccountResponse.class).returnResult().getResponseBody();
+        var retry = webClient.post().uri(accountsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectBody(AccountResponse.class).returnResult().getResponseBody();
+        assertThat(retry).isEqualTo(first);
+        webClient.get().uri(accountsUrl.get()).exchange()
+                .expectBodyList(AccountResponse.class).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("IT: POST /accounts reusing an Idempotency-Key for another request should return 422 Unprocessable Entity")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    void postAccountsReusingAnIdempotencyKeyForAnotherRequestShouldReturn422UnprocessableEntity(
+            @Random CreateAccountRequest request, @Random CreateAccountRequest other) {
+        var key = UUID.randomUUID().toString();
+        webClient.post().uri(accountsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk();
+        webClient.post().uri(accountsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(other).exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody().jsonPath("$.message").isEqualTo("Idempotency-Key was already used for a different request");
+    }
+
     @Test
     @DisplayName("IT: POST /accounts should return 400 Bad Request")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
@@ -359,4 +412,63 @@ class AccountApiTest {
                 .exchange()
                 .expectStatus().isNotFound();
     }
+
+    @Test
+    @DisplayName("IT: GET /accounts should issue at most 2 statements regardless of row count")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"accountsWithBankDetails.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    })
+    void getAccountsShouldIssueAtMost2Statements() {
+        assertStatementBudget(2, () -> webClient.get().uri(accountsUrl.get()).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /accounts/{id} should issue at most 1 statement")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"accountsWithBankDetails.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    })
+    void getAccountsIdShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(accountsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: POST /accounts should issue at most 3 statements")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    void postAccountsShouldIssueAtMost3Statements(@Random CreateAccountRequest request) {
+        assertStatementBudget(3, () -> webClient.post().uri(accountsUrl.get()).bodyValue(request).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: PATCH /accounts/{id} should issue at most 2 statements")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"accountsWithBankDetails.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    })
+    void patchAccountsIdShouldIssueAtMost2Statements() {
+        assertStatementBudget(2, () -> webClient.patch().uri(accountsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: DELETE /accounts/{id} should issue at most 2 statements")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"accountsWithBankDetails.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanAccountTable.sql"})
+    })
+    void deleteAccountsIdShouldIssueAtMost2Statements() {
+        assertStatementBudget(2, () -> webClient.delete().uri(accountsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    private void assertStatementBudget(int budget, Runnable call) {
+        assertThat(statementRecorder.record(call)).asList().hasSizeLessThanOrEqualTo(budget);
+    }
 }
@@ -4,6 +4,7 @@ import es.imaut.accountapi.domain.AccountResponse;
 import es.imaut.accountapi.domain.CreateAccountRequest;
 import es.imaut.accountapi.exception.AccountNotFoundException;
 import es.imaut.accountapi.service.AccountService;
+import es.imaut.accountapi.service.IdempotencyService;
 import io.github.glytching.junit.extension.random.Random;
 import io.github.glytching.junit.extension.random.RandomBeansExtension;
 import jakarta.validation.ConstraintViolationException;
@@ -23,6 +24,7 @@ import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.OK;
@@ -31,6 +33,8 @@ import static org.springframework.http.HttpStatus.OK;
 class AccountControllerTest {
     @Mock
     private AccountService service;
+    @Mock
+    private IdempotencyService idempotency;
     @InjectMocks
     private AccountController controller;
 
@@ -91,24 +95,34 @@ class AccountControllerTest {
     @Test
     @DisplayName("Create should call service")
     void createShouldCallService(@Random CreateAccountRequest request) {
-        controller.create(request);
+        controller.create(null, request);
         verify(service).create(request);
     }
 
     @Test
     @DisplayName("Create should return 200 OK")
     void createShouldReturn200Ok(@Random CreateAccountRequest request) {
-        var result = controller.create(request);
+        var result = controller.create(null, request);
         assertThat(result).hasFieldOrPropertyWithValue("status", OK);
     }
 
+    @Test
+    @DisplayName("Create with idempotency key should return account from idempotency service")
+    void createWithIdempotencyKeyShouldReturnAccountFromIdempotencyService(@Random CreateAccountRequest request, @Random AccountResponse details) {
+        when(idempotency.execute(eq("key"), eq(request), eq(AccountResponse.class), any()))
+                .thenReturn(details);
+        var result = controller.create("key", request);
+        assertThat(result.getBody()).isSameAs(details);
+        verify(service, never()).create(request);
+    }
+
     @Test
     @DisplayName("Create should return account from service")
     void createShouldReturnAccountFromService(@Random CreateAccountRequest request, @Random AccountResponse details) {
         details.setName(request.getName());
         when(service.create(argThat(request::equals)))
                 .thenReturn(details);
-        var result = controller.create(request);
+        var result = controller.create(null, request);
         assertThat(result.getBody())
                 .usingRecursiveComparison().isEqualTo(details);
     }
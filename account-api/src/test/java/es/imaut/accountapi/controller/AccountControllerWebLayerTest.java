@@ -6,6 +6,7 @@ import es.imaut.accountapi.domain.AccountResponse;
 import es.imaut.accountapi.domain.CreateAccountRequest;
 import es.imaut.accountapi.exception.AccountNotFoundException;
 import es.imaut.accountapi.service.AccountService;
+import es.imaut.accountapi.service.IdempotencyService;
 import io.github.glytching.junit.extension.random.Random;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.DisplayName;
@@ -22,7 +23,7 @@ import java.util.List;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,6 +36,8 @@ class AccountControllerWebLayerTest {
     private ObjectMapper mapper;
     @MockBean
     private AccountService service;
+    @MockBean
+    private IdempotencyService idempotency;
 
     @Test
     @DisplayName("GET /accounts should return 200 OK")
@@ -123,6 +126,31 @@ class AccountControllerWebLayerTest {
                 .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
     }
 
+    @Test
+    @DisplayName("POST /accounts with Idempotency-Key should return account from idempotency service")
+    void postAccountsWithIdempotencyKeyShouldReturnAccountFromIdempotencyService(@Random CreateAccountRequest body, @Random AccountResponse response) throws Exception {
+        when(idempotency.execute(eq("key"), eq(body), eq(AccountResponse.class), any())).thenReturn(response);
+        var request = post("/accounts")
+                .header("Idempotency-Key", "key")
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(body));
+        var result = mvc.perform(request).andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
+        verify(service, never()).create(any());
+    }
+
+    @Test
+    @DisplayName("POST /accounts with too long Idempotency-Key should return 400 Bad Request")
+    void postAccountsWithTooLongIdempotencyKeyShouldReturn400BadRequest(@Random CreateAccountRequest body) throws Exception {
+        var request = post("/accounts")
+                .header("Idempotency-Key", "k".repeat(256))
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(body));
+        mvc.perform(request).andExpect(status().isBadRequest());
+        verify(idempotency, never()).execute(any(), any(), any(), any());
+    }
+
     @Test
     @DisplayName("PATCH /accounts/{id} should return 404 Not found")
     void patchAccountsIdShouldReturn404NotFound() throws Exception {
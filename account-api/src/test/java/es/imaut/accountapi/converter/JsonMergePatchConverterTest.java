@@ -1,5 +1,6 @@
 package es.imaut.accountapi.converter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,14 +16,20 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
+import static javax.json.Json.createArrayBuilder;
 import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 class JsonMergePatchConverterTest {
     private static final JsonMergePatchConverter converter = new JsonMergePatchConverter();
+    private static final JsonMergePatchConverter streamingConverter = new JsonMergePatchConverter(new ObjectMapper(), true);
 
     @Test
     @DisplayName("Constructor should set supported media type")
@@ -60,6 +67,69 @@ class JsonMergePatchConverterTest {
                 .isInstanceOf(HttpMessageNotReadableException.class);
     }
 
+    @Test
+    @DisplayName("Read internal should return JSON-P merge patch when streaming is disabled")
+    void readInternalShouldReturnJsonPMergePatchWhenStreamingIsDisabled() {
+        var disabled = new JsonMergePatchConverter(new ObjectMapper(), false);
+        assertThat(disabled.readInternal(JsonMergePatch.class, new MockHttpInputMessage("{}")))
+                .isNotInstanceOf(StreamingMergePatch.class);
+    }
+
+    @Test
+    @DisplayName("Streaming read internal should return streaming merge patch")
+    void streamingReadInternalShouldReturnStreamingMergePatch() {
+        var result = streamingConverter.readInternal(JsonMergePatch.class, new MockHttpInputMessage("""
+                {"name": "Name", "count": 1, "price": 1.50, "active": true, "removed": null, "tags": ["a"], "nested": {"a": "b"}}
+                """));
+        assertThat(result).isInstanceOf(StreamingMergePatch.class);
+        var fields = (Map<?, ?>) ((StreamingMergePatch) result).value();
+        assertThat(fields).asInstanceOf(MAP)
+                .containsEntry("name", "Name")
+                .containsEntry("count", 1)
+                .containsEntry("price", new BigDecimal("1.50"))
+                .containsEntry("active", true)
+                .containsEntry("removed", null)
+                .containsEntry("tags", List.of("a"))
+                .containsEntry("nested", Map.of("a", "b"));
+    }
+
+    @Test
+    @DisplayName("Streaming read internal should throw HTTP message not readable exception for empty body")
+    void streamingReadInternalShouldThrowHttpMessageNotReadableExceptionForEmptyBody() {
+        assertThatThrownBy(() -> streamingConverter.readInternal(JsonMergePatch.class, new MockHttpInputMessage("")))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    @DisplayName("Streaming read internal should throw HTTP message not readable exception for truncated body")
+    void streamingReadInternalShouldThrowHttpMessageNotReadableExceptionForTruncatedBody() {
+        assertThatThrownBy(() -> streamingConverter.readInternal(JsonMergePatch.class, new MockHttpInputMessage("{\"name\": ")))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    @DisplayName("Streaming read internal should throw HTTP message not readable exception for trailing content")
+    void streamingReadInternalShouldThrowHttpMessageNotReadableExceptionForTrailingContent() {
+        assertThatThrownBy(() -> streamingConverter.readInternal(JsonMergePatch.class, new MockHttpInputMessage("{} {}")))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    @DisplayName("Streaming merge patch should expose equivalent JSON-P value")
+    void streamingMergePatchShouldExposeEquivalentJsonPValue() {
+        var result = streamingConverter.readInternal(JsonMergePatch.class, new MockHttpInputMessage("""
+                {"name": "Name", "count": 1, "price": 1.50, "active": false, "removed": null, "tags": ["a"]}
+                """));
+        assertThat(result.toJsonValue()).isEqualTo(createObjectBuilder()
+                .add("name", "Name")
+                .add("count", 1)
+                .add("price", new BigDecimal("1.50"))
+                .add("active", false)
+                .addNull("removed")
+                .add("tags", createArrayBuilder().add("a"))
+                .build());
+    }
+
     @Test
     @DisplayName("Write internal should write merge patch")
     void writeInternalShouldWriteMergePatch() {
@@ -15,7 +15,7 @@ import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
-@SpringBootTest(classes = { AccountMapperImpl.class })
+@SpringBootTest(classes = { AccountMapperImpl.class, JsonMergePatcher.class })
 @Import({ ObjectMapperConfig.class })
 @ExtendWith({ RandomBeansExtension.class })
 class AccountMapperTest {
@@ -79,4 +79,26 @@ class AccountMapperTest {
                 .hasFieldOrPropertyWithValue("id", id)
                 .hasFieldOrPropertyWithValue("name", name);
     }
+
+    @Test
+    @DisplayName("Merge should patch given account")
+    void mergeShouldPatchGivenAccount(@Random Account account) {
+        var patch = createMergePatch(createObjectBuilder()
+                .add("name", "Name")
+                .build());
+        assertThat(mapper.merge(patch, account))
+                .isSameAs(account)
+                .hasFieldOrPropertyWithValue("name", "Name");
+    }
+
+    @Test
+    @DisplayName("Merge should not apply id")
+    void mergeShouldNotApplyId(@Random Account account) {
+        var id = account.getId();
+        var patch = createMergePatch(createObjectBuilder()
+                .add("id", id + 1)
+                .build());
+        assertThat(mapper.merge(patch, account))
+                .hasFieldOrPropertyWithValue("id", id);
+    }
 }
@@ -2,7 +2,11 @@ package es.imaut.accountapi.repository;
 
 import es.imaut.accountapi.RandomAccountExtension;
 import es.imaut.accountapi.model.Account;
+import es.imaut.accountapi.model.BankDetails;
 import io.github.glytching.junit.extension.random.Random;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,6 +30,13 @@ class AccountRepositoryTest {
     private TestEntityManager entityManager;
     @Autowired
     private AccountRepository repository;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
 
     @Test
     @DisplayName("Find all should return empty list")
@@ -38,6 +49,77 @@ class AccountRepositoryTest {
     @Test
     @DisplayName("Find all should return all accounts")
     void findAllShouldReturnAllAccounts(@Random(type = Account.class) List<Account> accounts) {
+        persist(accounts);
+        var result = repository.findAll();
+        assertThat(result).isNotNull()
+                .asList().hasSameSizeAs(accounts)
+                .containsExactlyInAnyOrderElementsOf(accounts);
+    }
+
+    @Test
+    @DisplayName("Find all should fetch accounts and bank details in one statement")
+    void findAllShouldFetchAccountsAndBankDetailsInOneStatement(@Random(type = Account.class) List<Account> accounts) {
+        persist(accounts);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.findAll();
+        result.forEach(a -> a.getBankDetails().forEach(BankDetails::getIban));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Find by id should fetch account and bank details in one statement")
+    void findByIdShouldFetchAccountAndBankDetailsInOneStatement(@Random(type = Account.class) List<Account> accounts) {
+        persist(accounts);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.findById(accounts.get(0).getId()).orElseThrow();
+        result.getBankDetails().forEach(BankDetails::getIban);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Save all should batch account and bank details inserts")
+    void saveAllShouldBatchAccountAndBankDetailsInserts(@Random(type = Account.class, size = 20) List<Account> accounts) {
+        statistics.clear();
+        persist(accounts);
+        entityManager.flush();
+        assertThat(statistics.getEntityInsertCount())
+                .isEqualTo(accounts.size() + accounts.stream().mapToLong(a -> a.getBankDetails().size()).sum());
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(statistics.getEntityInsertCount());
+    }
+
+    @Test
+    @DisplayName("Stream all ids should return the id of every account")
+    void streamAllIdsShouldReturnTheIdOfEveryAccount(@Random(type = Account.class) List<Account> accounts) {
+        persist(accounts);
+        try (var ids = repository.streamAllIds()) {
+            assertThat(ids.toList()).asList()
+                    .containsExactlyInAnyOrderElementsOf(accounts.stream().map(Account::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Purge should delete account and bank details in two statements")
+    void purgeShouldDeleteAccountAndBankDetailsInTwoStatements(@Random(type = Account.class) List<Account> accounts) {
+        persist(accounts);
+        entityManager.flush();
+        entityManager.clear();
+        var account = accounts.get(0);
+        statistics.clear();
+        var bankDetails = repository.purgeBankDetailsById(account.getId());
+        var deleted = repository.purgeById(account.getId());
+        assertThat(bankDetails).isEqualTo(account.getBankDetails().size());
+        assertThat(deleted).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2L);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(repository.findById(account.getId())).isEmpty();
+        assertThat(repository.count()).isEqualTo(accounts.size() - 1);
+    }
+
+    private void persist(List<Account> accounts) {
         accounts.stream().peek(a -> {
             a.setId(null);
             a.getBankDetails().forEach(bd -> {
@@ -45,9 +127,5 @@ class AccountRepositoryTest {
                 bd.setAccount(a);
             });
         }).forEach(entityManager::persist);
-        var result = repository.findAll();
-        assertThat(result).isNotNull()
-                .asList().hasSameSizeAs(accounts)
-                .containsExactlyInAnyOrderElementsOf(accounts);
     }
 }
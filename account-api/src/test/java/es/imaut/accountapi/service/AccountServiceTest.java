@@ -10,6 +10,7 @@ import es.imaut.accountapi.model.Account;
 import es.imaut.accountapi.repository.AccountRepository;
 import io.github.glytching.junit.extension.random.Random;
 import io.github.glytching.junit.extension.random.RandomBeansExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,6 +21,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.json.JsonMergePatch;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
@@ -38,6 +40,8 @@ class AccountServiceTest {
     private AccountMapper accountMapper = new AccountMapperImpl();
     @Spy
     private AccountDetailsMapper detailsMapper = new AccountDetailsMapperImpl();
+    @Spy
+    private IdFilter idFilter = new IdFilter("account", 0.01, 0, new SimpleMeterRegistry());
     @InjectMocks
     private AccountService service;
 
@@ -90,16 +94,58 @@ class AccountServiceTest {
         assertThat(result).usingRecursiveComparison().isEqualTo(account);
     }
 
+    @Test
+    @DisplayName("Find by id should throw not found exception without repository for ids absent from filter")
+    void findByIdShouldThrowNotFoundExceptionWithoutRepositoryForIdsAbsentFromFilter() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        assertThatThrownBy(() -> service.findById(2L))
+                .isInstanceOf(AccountNotFoundException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Find by id should call repository for ids above the highest rebuilt id")
+    void findByIdShouldCallRepositoryForIdsAboveTheHighestRebuiltId(@Random Account account) {
+        idFilter.rebuild(1, () -> Stream.of(1L));
+        when(repository.findById(2L)).thenReturn(of(account));
+        service.findById(2L);
+        verify(repository).findById(2L);
+    }
+
+    @Test
+    @DisplayName("Find by id should record false positive when filtered id is not found")
+    void findByIdShouldRecordFalsePositiveWhenFilteredIdIsNotFound() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        when(repository.findById(1L)).thenReturn(empty());
+        assertThatThrownBy(() -> service.findById(1L))
+                .isInstanceOf(AccountNotFoundException.class);
+        verify(idFilter).recordLookup(false);
+    }
+
     @Test
     @DisplayName("Create should call repository")
     void createShouldCallRepository(@Random CreateAccountRequest request, @Random Account account) {
         account.setName(request.getName());
         when(accountMapper.from(request))
                 .thenReturn(account);
+        when(repository.save(account))
+                .thenReturn(account);
         service.create(request);
         verify(repository).save(argThat(c -> c.getName().equals(request.getName())));
     }
 
+    @Test
+    @DisplayName("Create should add created id to filter")
+    void createShouldAddCreatedIdToFilter(@Random CreateAccountRequest request, @Random Account account) {
+        idFilter.rebuild(1, () -> Stream.of(Long.MAX_VALUE));
+        when(accountMapper.from(request))
+                .thenReturn(account);
+        when(repository.save(account))
+                .thenReturn(account);
+        service.create(request);
+        assertThat(idFilter.mightContain(account.getId())).isTrue();
+    }
+
     @Test
     @DisplayName("Create should return created account")
     void createShouldReturnCreatedAccount(@Random CreateAccountRequest request, @Random Account account) {
@@ -155,25 +201,31 @@ class AccountServiceTest {
     }
 
     @Test
-    @DisplayName("Delete should call repository to check if exists")
-    void deleteShouldNotCallRepositoryToCheckIfExists() {
+    @DisplayName("Delete should purge bank details before account")
+    void deleteShouldPurgeBankDetailsBeforeAccount() {
         service.delete(1L);
-        verify(repository).existsById(1L);
+        var inOrder = inOrder(repository);
+        inOrder.verify(repository).purgeBankDetailsById(1L);
+        inOrder.verify(repository).purgeById(1L);
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldNotCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(false);
-        service.delete(1L);
-        verify(repository, times(0)).deleteById(1L);
+    @DisplayName("Rebuild id filter should build filter from repository ids")
+    void rebuildIdFilterShouldBuildFilterFromRepositoryIds() {
+        when(repository.count()).thenReturn(2L);
+        when(repository.streamAllIds()).thenReturn(Stream.of(1L, 2L));
+        service.rebuildIdFilter();
+        verify(idFilter).rebuild(eq(2L), any());
+        assertThat(idFilter.mightContain(1L)).isTrue();
+        assertThat(idFilter.mightContain(2L)).isTrue();
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(true);
+    @DisplayName("Delete should not load account")
+    void deleteShouldNotLoadAccount() {
         service.delete(1L);
-        verify(repository).deleteById(1L);
+        verify(repository, never()).existsById(1L);
+        verify(repository, never()).findById(1L);
+        verify(repository, never()).deleteById(1L);
     }
 }
@@ -0,0 +1,11 @@
+insert into account (id, name, type) values
+    (1, 'John Doe', 'Self Employed'),
+    (2, 'Jane Doe', 'Self Employed'),
+    (3, 'Does Company', 'Ltd');
+insert into bank_details (id, account_name, iban, bic, bank_name, account_id) values
+    (1, 'John Doe', 'ES9121000418450200051332', 'CAIXESBB', 'CaixaBank', 1),
+    (2, 'John Doe', 'ES7921000813610123456789', 'CAIXESBB', 'CaixaBank', 1),
+    (3, 'Jane Doe', 'ES1000492352082414205416', 'BSCHESMM', 'Santander', 2),
+    (4, 'Jane Doe', 'ES6000491500051234567892', 'BSCHESMM', 'Santander', 2),
+    (5, 'Does Company', 'ES3000810001234567890123', 'BSABESBB', 'Banco Sabadell', 3),
+    (6, 'Does Company', 'ES6621000418401234567891', 'CAIXESBB', 'CaixaBank', 3);
@@ -0,0 +1,107 @@
+package es.imaut.clientapi.benchmark;
+
+import es.imaut.clientapi.config.ObjectMapperConfig;
+import es.imaut.clientapi.converter.StreamingMergePatch;
+import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.CreateClientRequest;
+import es.imaut.clientapi.mapper.ClientDetailsMapper;
+import es.imaut.clientapi.mapper.ClientDetailsMapperImpl;
+import es.imaut.clientapi.mapper.ClientMapper;
+import es.imaut.clientapi.mapper.ClientMapperImpl;
+import es.imaut.clientapi.mapper.JsonMergePatcher;
+import es.imaut.clientapi.model.Client;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.json.JsonMergePatch;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of the client mappers and of merge patches read as a JSON-P tree or by the streaming reader. Run with
+ * {@code mvn -Pjmh test-compile exec:exec} from the module; JMH options go in {@code jmh.args}, e.g.
+ * {@code -Djmh.args="ClientMapperBenchmark.changes -f 1 -prof gc"} to also report allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ClientMapperBenchmark {
+    @State(Scope.Benchmark)
+    public static class Mappers {
+        private AnnotationConfigApplicationContext context;
+        private ClientMapper clientMapper;
+        private ClientDetailsMapper detailsMapper;
+        private CreateClientRequest request;
+        private Client client;
+
+        @Setup
+        public void setUp() {
+            context = new AnnotationConfigApplicationContext(
+                    ObjectMapperConfig.class, JsonMergePatcher.class, ClientMapperImpl.class, ClientDetailsMapperImpl.class);
+            clientMapper = context.getBean(ClientMapper.class);
+            detailsMapper = context.getBean(ClientDetailsMapper.class);
+            request = new CreateClientRequest();
+            request.setName("Client");
+            request.setVatNumber("ESB87654321");
+            request.setStreetAddress("Gran Via 2");
+            request.setPostcode("28013");
+            request.setCity("Madrid");
+            request.setCountry("Spain");
+            client = clientMapper.from(request);
+            client.setId(1L);
+            client.setVersion(0L);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Patch {
+        private static final String SMALL = """
+                { "name": "Renamed client" }
+                """;
+        private static final String LARGE = """
+                {
+                  "name": "Renamed client",
+                  "vatNumber": "ESB12345678",
+                  "streetAddress": "Calle Mayor 1",
+                  "postcode": "28013",
+                  "city": "Madrid",
+                  "country": "Spain"
+                }
+                """;
+
+        @Param({ "small", "large" })
+        private String size;
+        @Param({ "true", "false" })
+        private boolean streaming;
+        private JsonMergePatch patch;
+
+        @Setup
+        public void setUp() {
+            var json = "small".equals(size) ? SMALL : LARGE;
+            patch = streaming ? MergePatches.streaming(json, StreamingMergePatch::new) : MergePatches.jsonP(json);
+        }
+    }
+
+    @Benchmark
+    public Client createMapping(Mappers mappers) {
+        return mappers.clientMapper.from(mappers.request);
+    }
+
+    @Benchmark
+    public ClientResponse detailsMapping(Mappers mappers) {
+        return mappers.detailsMapper.from(mappers.client);
+    }
+
+    @Benchmark
+    public Map<String, Object> changes(Mappers mappers, Patch patch) {
+        return mappers.clientMapper.changes(patch.patch);
+    }
+}
@@ -0,0 +1,45 @@
+package es.imaut.clientapi.config;
+
+import es.imaut.clientapi.mapper.ClientMapper;
+import es.imaut.clientapi.repository.ClientRepository;
+import es.imaut.clientapi.service.ClientImportService;
+import es.imaut.clientapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Client CSV imports run on their own pool of {@code client-import.concurrency} threads, so further imports queue
+ * instead of taking more connections away from requests. Rows are written {@code client-import.batch-size} at a
+ * time, up to {@code client-import.max-errors} rejected rows are reported per import, and progress can be looked up
+ * for {@code client-import.time-to-live}.
+ */
+@Configuration
+public class ClientImportConfig {
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService clientImportExecutor(@Value("${client-import.concurrency}") int concurrency) {
+        return Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("client-import-"));
+    }
+
+    @Bean
+    public ClientImportService clientImportService(
+            ClientRepository repository,
+            ClientMapper clientMapper,
+            Validator validator,
+            IdFilter idFilter,
+            ExecutorService clientImportExecutor,
+            @Value("${client-import.batch-size}") int batchSize,
+            @Value("${client-import.max-errors}") int maxErrors,
+            @Value("${client-import.time-to-live}") Duration timeToLive,
+            MeterRegistry meterRegistry) {
+        return new ClientImportService(repository, clientMapper, validator, idFilter, clientImportExecutor, batchSize,
+                maxErrors, timeToLive, meterRegistry);
+    }
+}
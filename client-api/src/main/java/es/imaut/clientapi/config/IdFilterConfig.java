@@ -0,0 +1,44 @@
+package es.imaut.clientapi.config;
+
+import es.imaut.clientapi.service.ClientService;
+import es.imaut.clientapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * The client {@link IdFilter} lets every id through until it is built. Building is opt-in ({@code id-filter.enabled})
+ * because rows written behind the service's back are unknown to the filter until the next rebuild: the filter is
+ * built at startup and rebuilt every {@code id-filter.rebuild-interval}, which also drops deleted ids. Ids above the
+ * highest one seen by the last rebuild, less {@code id-filter.recent-ids}, are always looked up, so clients created
+ * on other instances since then are still found.
+ */
+@Configuration
+public class IdFilterConfig {
+    public static final String CLIENT_FILTER = "client";
+
+    @Bean
+    public IdFilter clientIdFilter(@Value("${id-filter.false-positive-probability}") double falsePositiveProbability,
+                                   @Value("${id-filter.recent-ids}") long recentIds,
+                                   MeterRegistry meterRegistry) {
+        return new IdFilter(CLIENT_FILTER, falsePositiveProbability, recentIds, meterRegistry);
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(value = "id-filter.enabled", havingValue = "true")
+    @RequiredArgsConstructor
+    static class IdFilterRebuildConfig {
+        private final ClientService service;
+
+        @Scheduled(initialDelay = 0, fixedDelayString = "${id-filter.rebuild-interval}")
+        public void rebuildIdFilter() {
+            service.rebuildIdFilter();
+        }
+    }
+}
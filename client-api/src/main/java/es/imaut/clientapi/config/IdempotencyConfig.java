@@ -0,0 +1,53 @@
+package es.imaut.clientapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.imaut.clientapi.repository.IdempotencyRecordRepository;
+import es.imaut.clientapi.service.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * {@code Idempotency-Key} responses are kept in memory, up to {@code idempotency.max-entries} for
+ * {@code idempotency.time-to-live}; a retry waits at most {@code idempotency.wait-timeout} for the request it
+ * repeats. With {@code idempotency.database.enabled} keys are also claimed in the {@code idempotency_key} table, which
+ * is purged of expired keys every {@code idempotency.database.purge-interval}.
+ */
+@Configuration
+public class IdempotencyConfig {
+    @Bean
+    public IdempotencyService idempotencyService(
+            @Value("${idempotency.max-entries}") long maxEntries,
+            @Value("${idempotency.time-to-live}") Duration timeToLive,
+            @Value("${idempotency.database.enabled}") boolean database,
+            @Value("${idempotency.wait-timeout}") Duration waitTimeout,
+            IdempotencyRecordRepository repository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        return new IdempotencyService(maxEntries, timeToLive, database ? repository : null, waitTimeout, objectMapper,
+                meterRegistry);
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(value = "idempotency.database.enabled", havingValue = "true")
+    @RequiredArgsConstructor
+    static class IdempotencyPurgeConfig {
+        private final IdempotencyRecordRepository repository;
+        @Value("${idempotency.time-to-live}")
+        private Duration timeToLive;
+
+        @Scheduled(fixedDelayString = "${idempotency.database.purge-interval}")
+        public void purgeExpiredIdempotencyKeys() {
+            repository.purgeCreatedBefore(Instant.now().minus(timeToLive));
+        }
+    }
+}
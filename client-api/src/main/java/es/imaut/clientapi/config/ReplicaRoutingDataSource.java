@@ -0,0 +1,65 @@
+package es.imaut.clientapi.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static java.lang.Boolean.TRUE;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isCurrentTransactionReadOnly;
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything else. Once a
+ * request has opened a read-write transaction it is pinned to the primary for the rest of the request, so it always
+ * reads its own writes whatever the replication lag. The read-only flag is only set once the transaction has begun,
+ * so the physical connection is fetched lazily, when the first statement is created. Closing it closes both pools.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+    private static final String PINNED_TO_PRIMARY = ReplicaRoutingDataSource.class.getName() + ".PINNED_TO_PRIMARY";
+
+    private final Map<String, DataSource> pools;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        this.pools = Map.of(PRIMARY, primary, REPLICA, replica);
+        var router = new Router();
+        router.setTargetDataSources(Map.copyOf(pools));
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    public Map<String, DataSource> getPools() {
+        return pools;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (var pool : pools.values()) {
+            if (pool instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Router extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            var request = RequestContextHolder.getRequestAttributes();
+            if (isActualTransactionActive() && !isCurrentTransactionReadOnly()) {
+                if (request != null) {
+                    request.setAttribute(PINNED_TO_PRIMARY, TRUE, SCOPE_REQUEST);
+                }
+                return PRIMARY;
+            }
+            var pinned = request != null && request.getAttribute(PINNED_TO_PRIMARY, SCOPE_REQUEST) != null;
+            return isCurrentTransactionReadOnly() && !pinned ? REPLICA : PRIMARY;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package es.imaut.clientapi.config;
+
+import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SingleFlightConfig {
+    public static final String CLIENT_FLIGHT = "client";
+
+    @Bean
+    public SingleFlight<Long, ClientResponse> clientSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>(CLIENT_FLIGHT, meterRegistry);
+    }
+}
@@ -1,37 +1,86 @@
 package es.imaut.clientapi.controller;
 
 import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import es.imaut.clientapi.service.ClientService;
+import es.imaut.clientapi.service.IdempotencyService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.json.JsonMergePatch;
 import java.util.List;
+import java.util.function.Function;
 
+import static es.imaut.clientapi.domain.ClientCursor.decode;
+import static es.imaut.clientapi.domain.ClientCursor.encode;
+import static java.lang.String.valueOf;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.http.ResponseEntity.status;
+import static org.springframework.util.StringUtils.hasText;
 
 @RestController
 @RequestMapping("/clients")
+@Validated
 @RequiredArgsConstructor
 public class ClientController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final ClientService service;
+    private final IdempotencyService idempotency;
 
     @GetMapping
-    public ResponseEntity<List<ClientResponse>> findAll() {
-        return ok(service.findAll());
+    public ResponseEntity<List<ClientResponse>> findAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        return page(service.findAll(decode(after), limit), last -> encode(last.getId()));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ClientResponse>> search(
+            ClientSearchRequest search,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        var byName = hasText(search.getName());
+        return page(service.search(search, ClientSearchCursor.decode(after), limit),
+                last -> ClientSearchCursor.encode(byName ? last.getName() : null, last.getId()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ClientResponse> findById(@PathVariable Long id) {
-        return ok(service.findById(id));
+    public ResponseEntity<ClientResponse> findById(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(IF_NONE_MATCH) != null && request.checkNotModified(valueOf(service.findVersion(id)))) {
+            return status(NOT_MODIFIED).build();
+        }
+        var client = service.findById(id);
+        return ok().eTag(valueOf(client.getVersion())).body(client);
     }
 
+    /**
+     * With an {@code Idempotency-Key}, retries of the same request replay the first response instead of creating
+     * the client again.
+     */
     @PostMapping
-    public ResponseEntity<ClientResponse> create(@Valid @RequestBody CreateClientRequest request) {
-        return ok(service.create(request));
+    public ResponseEntity<ClientResponse> create(
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(max = MAX_IDEMPOTENCY_KEY_LENGTH) String idempotencyKey,
+            @Valid @RequestBody CreateClientRequest request) {
+        if (idempotencyKey == null) {
+            return ok(service.create(request));
+        }
+        return ok(idempotency.execute(idempotencyKey, request, ClientResponse.class, () -> service.create(request)));
     }
 
     @PatchMapping(path = "/{id}", consumes = "application/merge-patch+json")
@@ -44,4 +93,13 @@ public class ClientController {
         service.delete(id);
         return ok().build();
     }
+
+    private ResponseEntity<List<ClientResponse>> page(Slice<ClientResponse> page, Function<ClientResponse, String> cursor) {
+        var response = ok();
+        if (page.hasNext()) {
+            var last = page.getContent().get(page.getNumberOfElements() - 1);
+            response.header(NEXT_CURSOR_HEADER, cursor.apply(last));
+        }
+        return response.body(page.getContent());
+    }
 }
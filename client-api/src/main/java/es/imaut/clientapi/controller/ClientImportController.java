@@ -0,0 +1,39 @@
+package es.imaut.clientapi.controller;
+
+import es.imaut.clientapi.domain.ClientImportResponse;
+import es.imaut.clientapi.service.ClientImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
+import static org.springframework.http.ResponseEntity.accepted;
+import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequest;
+
+@RestController
+@RequestMapping("/clients/imports")
+@RequiredArgsConstructor
+public class ClientImportController {
+    private final ClientImportService service;
+
+    /**
+     * Starts importing the uploaded CSV in the background and answers {@code 202 Accepted} at once, with the
+     * import's status resource in {@code Location}.
+     */
+    @PostMapping(consumes = MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ClientImportResponse> start(@RequestParam MultipartFile file) {
+        var clientImport = service.start(file);
+        return accepted()
+                .location(fromCurrentRequest().path("/{id}").buildAndExpand(clientImport.id()).toUri())
+                .body(clientImport);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ClientImportResponse> findById(@PathVariable UUID id) {
+        return ok(service.findById(id));
+    }
+}
@@ -0,0 +1,33 @@
+package es.imaut.clientapi.domain;
+
+import es.imaut.clientapi.exception.InvalidCursorException;
+import lombok.NoArgsConstructor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Base64.getUrlDecoder;
+import static java.util.Base64.getUrlEncoder;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Opaque keyset cursor for client pages. It wraps the id of the last client returned so that the next page
+ * starts right after it, which keeps every page an index range scan on the primary key.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class ClientCursor {
+    private static final long FIRST = 0L;
+
+    public static String encode(Long id) {
+        return getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            return Long.valueOf(new String(getUrlDecoder().decode(cursor), UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
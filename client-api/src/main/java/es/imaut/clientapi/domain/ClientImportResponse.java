@@ -0,0 +1,39 @@
+package es.imaut.clientapi.domain;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Progress of a client CSV import. Row counts grow as the import runs; {@code errors} lists the rejected rows, up
+ * to a configured maximum, while {@code rejected} counts all of them.
+ */
+@Builder
+public record ClientImportResponse(
+        UUID id,
+        Status status,
+        long rows,
+        long inserted,
+        long updated,
+        long rejected,
+        List<ClientImportError> errors,
+        String failure,
+        Instant startedAt,
+        Instant completedAt) {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * A rejected row, numbered from 1 without counting the header. {@code field} is {@code null} when the row could
+     * not be read at all.
+     */
+    public record ClientImportError(
+            long row,
+            String field,
+            String message) {
+    }
+}
@@ -1,5 +1,6 @@
 package es.imaut.clientapi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.util.Objects;
@@ -17,6 +18,8 @@ public class ClientResponse {
     private String postcode;
     private String city;
     private String country;
+    @JsonIgnore
+    private Long version;
 
     @Override
     @Generated
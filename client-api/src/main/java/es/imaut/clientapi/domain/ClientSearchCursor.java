@@ -0,0 +1,34 @@
+package es.imaut.clientapi.domain;
+
+import es.imaut.clientapi.exception.InvalidCursorException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Base64.getUrlDecoder;
+import static java.util.Base64.getUrlEncoder;
+
+/**
+ * Opaque keyset cursor for client search pages. Searches by name are ordered by name and id, so their cursor wraps
+ * the name and the id of the last client returned; other searches are ordered by id and only wrap the id. Either
+ * way the next page is a range scan on an index that ends with the id.
+ */
+public record ClientSearchCursor(String name, Long id) {
+    public static final ClientSearchCursor FIRST = new ClientSearchCursor(null, 0L);
+    private static final String SEPARATOR = ":";
+
+    public static String encode(String name, Long id) {
+        var key = name == null ? String.valueOf(id) : id + SEPARATOR + name;
+        return getUrlEncoder().withoutPadding().encodeToString(key.getBytes(UTF_8));
+    }
+
+    public static ClientSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            var key = new String(getUrlDecoder().decode(cursor), UTF_8).split(SEPARATOR, 2);
+            return new ClientSearchCursor(key.length == 2 ? key[1] : null, Long.valueOf(key[0]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
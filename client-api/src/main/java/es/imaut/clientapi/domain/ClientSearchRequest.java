@@ -0,0 +1,15 @@
+package es.imaut.clientapi.domain;
+
+import lombok.Data;
+
+/**
+ * Optional filters of a client search. The VAT number, country and city must match exactly and the name is
+ * matched as a prefix; filters left empty are not applied.
+ */
+@Data
+public class ClientSearchRequest {
+    private String vatNumber;
+    private String name;
+    private String country;
+    private String city;
+}
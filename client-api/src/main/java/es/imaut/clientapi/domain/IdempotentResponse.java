@@ -0,0 +1,10 @@
+package es.imaut.clientapi.domain;
+
+import java.time.Instant;
+
+/**
+ * A claimed {@code Idempotency-Key}: the hash of the request that claimed it and, once that request has completed,
+ * its serialized response.
+ */
+public record IdempotentResponse(String requestHash, String response, Instant createdAt) {
+}
@@ -0,0 +1,9 @@
+package es.imaut.clientapi.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+@ResponseStatus(NOT_FOUND)
+public class ClientImportNotFoundException extends RuntimeException {
+}
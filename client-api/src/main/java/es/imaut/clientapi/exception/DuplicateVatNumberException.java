@@ -0,0 +1,9 @@
+package es.imaut.clientapi.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+@ResponseStatus(value = CONFLICT, reason = "A client with this VAT number already exists")
+public class DuplicateVatNumberException extends RuntimeException {
+}
@@ -0,0 +1,9 @@
+package es.imaut.clientapi.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@ResponseStatus(value = BAD_REQUEST, reason = "The import needs a non-empty CSV file")
+public class InvalidClientImportException extends RuntimeException {
+}
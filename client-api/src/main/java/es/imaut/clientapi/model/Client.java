@@ -4,13 +4,17 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
 
 import java.util.Objects;
 
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static es.imaut.clientapi.config.SecondLevelCacheConfig.CLIENT_REGION;
+import static jakarta.persistence.GenerationType.TABLE;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 @Entity
 @Table(name = "client")
+@Cache(usage = READ_WRITE, region = CLIENT_REGION)
 @Getter
 @Setter
 @ToString
@@ -19,9 +23,14 @@ import static jakarta.persistence.GenerationType.IDENTITY;
 @AllArgsConstructor
 public class Client {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = TABLE, generator = "client_id")
+    @TableGenerator(name = "client_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "client", allocationSize = 50)
     @Column(name = "id")
     private Long id;
+    @Version
+    @Column(name = "version")
+    private Long version;
     @NotBlank
     @Size(max = 255)
     @Column(name = "name")
@@ -0,0 +1,22 @@
+package es.imaut.clientapi.repository;
+
+import java.util.Map;
+
+/**
+ * Single-row writes that skip the usual read-modify-write. Without the second-level cache each is one statement that
+ * bypasses the persistence context. With it, Hibernate would evict every cached client after such a bulk statement,
+ * so the row is loaded, from the cache when it is there, and written through the persistence context instead, which
+ * only evicts that client.
+ */
+public interface ClientPatchRepository {
+    /**
+     * Sets only the given properties of one client and bumps its version. Returns the number of rows updated, so
+     * {@code 0} means there is no client with that id.
+     */
+    int patch(Long id, Map<String, Object> changes);
+
+    /**
+     * Deletes one client. Returns the number of rows deleted, so {@code 0} means there is no client with that id.
+     */
+    int purgeById(Long id);
+}
@@ -0,0 +1,60 @@
+package es.imaut.clientapi.repository;
+
+import es.imaut.clientapi.model.Client;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+class ClientPatchRepositoryImpl implements ClientPatchRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long id, Map<String, Object> changes) {
+        if (secondLevelCacheEnabled()) {
+            var client = entityManager.find(Client.class, id);
+            if (client == null) {
+                return 0;
+            }
+            var properties = PropertyAccessorFactory.forBeanPropertyAccess(client);
+            changes.forEach(properties::setPropertyValue);
+            // Flushes here so a constraint violation is raised by the patch rather than at commit.
+            entityManager.flush();
+            return 1;
+        }
+        var builder = entityManager.getCriteriaBuilder();
+        var update = builder.createCriteriaUpdate(Client.class);
+        var client = update.from(Client.class);
+        changes.forEach((property, value) -> update.set(client.get(property), value));
+        update.set(client.<Long>get("version"), builder.sum(client.get("version"), 1L));
+        update.where(builder.equal(client.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int purgeById(Long id) {
+        if (secondLevelCacheEnabled()) {
+            var client = entityManager.find(Client.class, id);
+            if (client == null) {
+                return 0;
+            }
+            entityManager.remove(client);
+            entityManager.flush();
+            return 1;
+        }
+        return entityManager.createQuery("delete from Client c where c.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    private boolean secondLevelCacheEnabled() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+}
@@ -1,9 +1,30 @@
 package es.imaut.clientapi.repository;
 
 import es.imaut.clientapi.model.Client;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientPatchRepository, ClientSearchRepository,
+        ClientUpsertRepository {
+    Slice<Client> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select c.version from Client c where c.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.id from Client c")
+    Stream<Long> streamAllIds();
 }
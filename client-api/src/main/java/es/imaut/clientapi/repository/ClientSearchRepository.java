@@ -0,0 +1,16 @@
+package es.imaut.clientapi.repository;
+
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
+import es.imaut.clientapi.model.Client;
+import org.springframework.data.domain.Slice;
+
+public interface ClientSearchRepository {
+    /**
+     * Returns up to {@code limit} clients matching every given filter after the {@code after} cursor. Searches by
+     * name are ordered by name and id, the rest by id, so each page is a range scan on the index of the leading
+     * filter: {@code (name, id)}, {@code (country, id)}, {@code (country, city)} or {@code (city)}, the last two
+     * ending with the primary key in InnoDB.
+     */
+    Slice<Client> search(ClientSearchRequest search, ClientSearchCursor after, int limit);
+}
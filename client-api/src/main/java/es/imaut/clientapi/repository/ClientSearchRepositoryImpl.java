@@ -0,0 +1,80 @@
+package es.imaut.clientapi.repository;
+
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
+import es.imaut.clientapi.exception.InvalidCursorException;
+import es.imaut.clientapi.model.Client;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static es.imaut.clientapi.domain.ClientSearchCursor.FIRST;
+import static org.springframework.data.domain.PageRequest.ofSize;
+import static org.springframework.util.StringUtils.hasText;
+
+@RequiredArgsConstructor
+class ClientSearchRepositoryImpl implements ClientSearchRepository {
+    private static final char ESCAPE = '\\';
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<Client> search(ClientSearchRequest search, ClientSearchCursor after, int limit) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(Client.class);
+        var client = query.from(Client.class);
+        var predicates = new ArrayList<Predicate>();
+        if (hasText(search.getName())) {
+            predicates.add(builder.like(client.get("name"), escape(search.getName()) + "%", ESCAPE));
+            afterName(builder, client, after).ifPresent(predicates::add);
+            query.orderBy(builder.asc(client.get("name")), builder.asc(client.get("id")));
+        } else {
+            predicates.add(builder.greaterThan(client.get("id"), after.id()));
+            query.orderBy(builder.asc(client.get("id")));
+        }
+        if (hasText(search.getVatNumber())) {
+            predicates.add(builder.equal(client.get("vatNumber"), search.getVatNumber()));
+        }
+        if (hasText(search.getCountry())) {
+            predicates.add(builder.equal(client.get("country"), search.getCountry()));
+        }
+        if (hasText(search.getCity())) {
+            predicates.add(builder.equal(client.get("city"), search.getCity()));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        // One extra row tells whether there is a next page without a count query.
+        var clients = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+        var hasNext = clients.size() > limit;
+        return new SliceImpl<>(hasNext ? clients.subList(0, limit) : clients, ofSize(limit), hasNext);
+    }
+
+    /**
+     * Clients after the cursor in (name, id) order. The redundant lower bound on the name keeps it a single range on
+     * the (name, id) index.
+     */
+    private static Optional<Predicate> afterName(CriteriaBuilder builder, Root<Client> client, ClientSearchCursor after) {
+        if (after.name() == null) {
+            if (!after.id().equals(FIRST.id())) {
+                throw new InvalidCursorException();
+            }
+            return Optional.empty();
+        }
+        var name = client.<String>get("name");
+        return Optional.of(builder.and(
+                builder.greaterThanOrEqualTo(name, after.name()),
+                builder.or(builder.greaterThan(name, after.name()), builder.greaterThan(client.get("id"), after.id()))));
+    }
+
+    private static String escape(String prefix) {
+        return prefix.replace(String.valueOf(ESCAPE), ESCAPE + String.valueOf(ESCAPE))
+                .replace("%", ESCAPE + "%")
+                .replace("_", ESCAPE + "_");
+    }
+}
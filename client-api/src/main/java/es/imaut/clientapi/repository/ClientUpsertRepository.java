@@ -0,0 +1,15 @@
+package es.imaut.clientapi.repository;
+
+import es.imaut.clientapi.model.Client;
+
+import java.util.List;
+
+public interface ClientUpsertRepository {
+    /**
+     * Inserts the given clients whose VAT number is not stored yet and updates the stored ones in place, in one
+     * transaction whose statements are sent in JDBC batches. Stored clients are read with a single query; a client
+     * whose values did not change is not written. A VAT number given more than once is written once, with its last
+     * values. Returns the ids of the inserted clients.
+     */
+    List<Long> upsertByVatNumber(List<Client> clients);
+}
@@ -0,0 +1,41 @@
+package es.imaut.clientapi.repository;
+
+import es.imaut.clientapi.model.Client;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+@RequiredArgsConstructor
+class ClientUpsertRepositoryImpl implements ClientUpsertRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public List<Long> upsertByVatNumber(List<Client> clients) {
+        var stored = entityManager.createQuery("select c from Client c where c.vatNumber in :vatNumbers", Client.class)
+                .setParameter("vatNumbers", clients.stream().map(Client::getVatNumber).distinct().toList())
+                .getResultStream()
+                .collect(toMap(Client::getVatNumber, identity()));
+        var inserted = new ArrayList<Long>();
+        for (var client : clients) {
+            var current = stored.putIfAbsent(client.getVatNumber(), client);
+            if (current == null) {
+                entityManager.persist(client);
+                inserted.add(client.getId());
+            } else {
+                current.setName(client.getName());
+                current.setStreetAddress(client.getStreetAddress());
+                current.setPostcode(client.getPostcode());
+                current.setCity(client.getCity());
+                current.setCountry(client.getCountry());
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,277 @@
+package es.imaut.clientapi.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.imaut.clientapi.domain.ClientImportResponse;
+import es.imaut.clientapi.domain.ClientImportResponse.ClientImportError;
+import es.imaut.clientapi.domain.ClientImportResponse.Status;
+import es.imaut.clientapi.domain.CreateClientRequest;
+import es.imaut.clientapi.exception.ClientImportNotFoundException;
+import es.imaut.clientapi.exception.InvalidClientImportException;
+import es.imaut.clientapi.mapper.ClientMapper;
+import es.imaut.clientapi.repository.ClientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.fasterxml.jackson.dataformat.csv.CsvParser.Feature.SKIP_EMPTY_LINES;
+import static com.fasterxml.jackson.dataformat.csv.CsvParser.Feature.TRIM_SPACES;
+
+/**
+ * Imports clients from CSV uploads in the background. The upload is spooled to a temporary file and then read one
+ * row at a time, so memory use does not grow with its size. The header names the columns after the
+ * {@link CreateClientRequest} properties, in any order; other columns are ignored. Rows are validated against the
+ * {@link CreateClientRequest} constraints and upserted by VAT number in batches, each in its own transaction, so an
+ * import that fails part-way keeps the batches written before. Rows that cannot be read or are invalid are rejected
+ * and reported, the rest of the file is still imported; a file that is not valid CSV stops the import.
+ * <p>
+ * Progress is kept in memory for the time to live after the import was started or completed, so it can only be
+ * followed on the instance that runs it. Rows are counted in {@code client.import.rows}, tagged with whether they
+ * were {@code inserted}, {@code updated} or {@code rejected}.
+ */
+public class ClientImportService {
+    private static final ObjectReader READER = new CsvMapper()
+            .enable(TRIM_SPACES)
+            .enable(SKIP_EMPTY_LINES)
+            .readerFor(CreateClientRequest.class)
+            .with(CsvSchema.emptySchema().withHeader());
+
+    private final ClientRepository repository;
+    private final ClientMapper clientMapper;
+    private final Validator validator;
+    private final IdFilter idFilter;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxErrors;
+    private final Cache<UUID, ClientImport> imports;
+    private final Counter inserted;
+    private final Counter updated;
+    private final Counter rejected;
+
+    public ClientImportService(ClientRepository repository, ClientMapper clientMapper, Validator validator,
+                               IdFilter idFilter, Executor executor, int batchSize, int maxErrors,
+                               Duration timeToLive, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.clientMapper = clientMapper;
+        this.validator = validator;
+        this.idFilter = idFilter;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.imports = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.inserted = counter("inserted", meterRegistry);
+        this.updated = counter("updated", meterRegistry);
+        this.rejected = counter("rejected", meterRegistry);
+    }
+
+    public ClientImportResponse start(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new InvalidClientImportException();
+        }
+        var upload = spool(file);
+        var clientImport = new ClientImport(UUID.randomUUID());
+        imports.put(clientImport.id, clientImport);
+        try {
+            executor.execute(() -> run(clientImport, upload));
+        } catch (RejectedExecutionException e) {
+            imports.invalidate(clientImport.id);
+            delete(upload);
+            throw e;
+        }
+        return clientImport.toResponse();
+    }
+
+    public ClientImportResponse findById(UUID id) {
+        var clientImport = imports.getIfPresent(id);
+        if (clientImport == null) {
+            throw new ClientImportNotFoundException();
+        }
+        return clientImport.toResponse();
+    }
+
+    private void run(ClientImport clientImport, Path upload) {
+        clientImport.start();
+        try (MappingIterator<CreateClientRequest> rows = READER.readValues(upload.toFile())) {
+            var batch = new ArrayList<Row>(batchSize);
+            // Rows the parser cannot map are rejected and skipped; only malformed CSV stops the import.
+            while (rows.hasNextValue()) {
+                var row = clientImport.rows.incrementAndGet();
+                try {
+                    var request = rows.nextValue();
+                    var violations = validator.validate(request);
+                    if (violations.isEmpty()) {
+                        batch.add(new Row(row, request));
+                    } else {
+                        reject(clientImport, violations.stream()
+                                .map(v -> new ClientImportError(row, v.getPropertyPath().toString(), v.getMessage()))
+                                .toList());
+                    }
+                } catch (JsonMappingException e) {
+                    reject(clientImport, List.of(new ClientImportError(row, null, e.getOriginalMessage())));
+                }
+                if (batch.size() == batchSize) {
+                    write(clientImport, batch);
+                    batch.clear();
+                }
+            }
+            write(clientImport, batch);
+            clientImport.complete(Status.COMPLETED, null);
+        } catch (JsonParseException e) {
+            clientImport.complete(Status.FAILED,
+                    "Unreadable CSV at row %d: %s".formatted(clientImport.rows.get(), e.getOriginalMessage()));
+        } catch (IOException | RuntimeException e) {
+            clientImport.complete(Status.FAILED,
+                    "Import stopped at row %d: %s".formatted(clientImport.rows.get(), e.getMessage()));
+        } finally {
+            delete(upload);
+            // Restarts the time to live, so a finished import can be looked up for as long as a started one.
+            imports.put(clientImport.id, clientImport);
+        }
+    }
+
+    private void write(ClientImport clientImport, List<Row> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            upsert(clientImport, batch);
+        } catch (DataIntegrityViolationException e) {
+            if (!ClientService.isDuplicateVatNumber(e)) {
+                throw e;
+            }
+            // A VAT number was stored by another writer after the batch looked it up. Retrying row by row looks it up
+            // again, and rejects only the rows that still clash.
+            for (var row : batch) {
+                try {
+                    upsert(clientImport, List.of(row));
+                } catch (DataIntegrityViolationException conflict) {
+                    if (!ClientService.isDuplicateVatNumber(conflict)) {
+                        throw conflict;
+                    }
+                    reject(clientImport, List.of(new ClientImportError(row.number(), "vatNumber",
+                            "conflicts with another client")));
+                }
+            }
+        }
+    }
+
+    private void upsert(ClientImport clientImport, List<Row> rows) {
+        var ids = repository.upsertByVatNumber(rows.stream().map(row -> clientMapper.from(row.request())).toList());
+        ids.forEach(idFilter::add);
+        clientImport.inserted.addAndGet(ids.size());
+        clientImport.updated.addAndGet(rows.size() - ids.size());
+        inserted.increment(ids.size());
+        updated.increment(rows.size() - ids.size());
+    }
+
+    private void reject(ClientImport clientImport, List<ClientImportError> errors) {
+        clientImport.rejected.incrementAndGet();
+        rejected.increment();
+        errors.stream()
+                .limit(Math.max(0, maxErrors - clientImport.errors.size()))
+                .forEach(clientImport.errors::add);
+    }
+
+    private static Path spool(MultipartFile file) {
+        Path upload = null;
+        try {
+            upload = Files.createTempFile("client-import-", ".csv");
+            file.transferTo(upload);
+            return upload;
+        } catch (IOException e) {
+            if (upload != null) {
+                delete(upload);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path upload) {
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            upload.toFile().deleteOnExit();
+        }
+    }
+
+    private static Counter counter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("client.import.rows")
+                .description("Rows read from client CSV imports")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Row(long number, CreateClientRequest request) {
+    }
+
+    private static final class ClientImport {
+        private final UUID id;
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<ClientImportError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile Status status = Status.QUEUED;
+        private volatile String failure;
+        private volatile Instant startedAt;
+        private volatile Instant completedAt;
+
+        private ClientImport(UUID id) {
+            this.id = id;
+        }
+
+        private void start() {
+            this.startedAt = Instant.now();
+            this.status = Status.RUNNING;
+        }
+
+        private void complete(Status status, String failure) {
+            this.failure = failure;
+            this.completedAt = Instant.now();
+            this.status = status;
+        }
+
+        private ClientImportResponse toResponse() {
+            List<ClientImportError> errors;
+            synchronized (this.errors) {
+                errors = List.copyOf(this.errors);
+            }
+            return ClientImportResponse.builder()
+                    .id(id)
+                    .status(status)
+                    .rows(rows.get())
+                    .inserted(inserted.get())
+                    .updated(updated.get())
+                    .rejected(rejected.get())
+                    .errors(errors)
+                    .failure(failure)
+                    .startedAt(startedAt)
+                    .completedAt(completedAt)
+                    .build();
+        }
+    }
+}
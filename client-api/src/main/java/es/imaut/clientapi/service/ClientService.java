@@ -1,49 +1,159 @@
 package es.imaut.clientapi.service;
 
 import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import es.imaut.clientapi.exception.ClientNotFoundException;
+import es.imaut.clientapi.exception.DuplicateVatNumberException;
 import es.imaut.clientapi.mapper.ClientDetailsMapper;
 import es.imaut.clientapi.mapper.ClientMapper;
+import es.imaut.clientapi.model.Client;
 import es.imaut.clientapi.repository.ClientRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.json.JsonMergePatch;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.springframework.data.domain.PageRequest.ofSize;
 
 @Service
 @RequiredArgsConstructor
 public class ClientService {
+    private static final String VAT_NUMBER_INDEX = "idx_client_vat_number";
+
     private final ClientRepository repository;
     private final ClientMapper clientMapper;
     private final ClientDetailsMapper detailsMapper;
+    private final Validator validator;
+    private final SingleFlight<Long, ClientResponse> singleFlight;
+    private final IdFilter idFilter;
+
+    @Transactional(readOnly = true)
+    public Slice<ClientResponse> findAll(Long after, int limit) {
+        return repository.findByIdGreaterThanOrderByIdAsc(after, ofSize(limit))
+                .map(detailsMapper::from);
+    }
 
-    public List<ClientResponse> findAll() {
-        return repository.findAll().stream().map(detailsMapper::from).toList();
+    @Transactional(readOnly = true)
+    public Slice<ClientResponse> search(ClientSearchRequest search, ClientSearchCursor after, int limit) {
+        return repository.search(search, after, limit)
+                .map(detailsMapper::from);
     }
 
+    /**
+     * Concurrent reads of the same client share a single repository load. The load runs in its own read-only
+     * transaction, so callers waiting on it do not hold a connection. Ids the {@link IdFilter} knows to be absent
+     * are rejected without a load.
+     */
     public ClientResponse findById(Long id) {
-        return repository.findById(id)
-                .map(detailsMapper::from)
+        if (!idFilter.mightContain(id)) {
+            throw new ClientNotFoundException();
+        }
+        return singleFlight.load(id, () -> {
+            var client = repository.findById(id);
+            idFilter.recordLookup(client.isPresent());
+            return client.map(detailsMapper::from).orElseThrow(ClientNotFoundException::new);
+        });
+    }
+
+    /**
+     * Reads only the version column of a client, so conditional requests can be answered without loading and
+     * mapping the whole row.
+     */
+    @Transactional(readOnly = true)
+    public Long findVersion(Long id) {
+        return repository.findVersionById(id)
                 .orElseThrow(ClientNotFoundException::new);
     }
 
+    /**
+     * Creates a client, unless one with the same VAT number already exists.
+     */
     public ClientResponse create(CreateClientRequest request) {
-        return detailsMapper.from(repository.save(clientMapper.from(request)));
+        try {
+            var client = repository.save(clientMapper.from(request));
+            idFilter.add(client.getId());
+            return detailsMapper.from(client);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateVatNumberOr(e);
+        }
     }
 
+    /**
+     * Writes only the patched columns with one {@code UPDATE} and reads the row back once. The patched values are
+     * validated against the {@link Client} constraints before anything is written, and a VAT number already used by
+     * another client is rejected.
+     */
+    @Transactional
     public ClientResponse update(Long id, JsonMergePatch patch) {
+        var changes = clientMapper.changes(patch);
+        validate(changes);
+        if (!changes.isEmpty() && patch(id, changes) == 0) {
+            throw new ClientNotFoundException();
+        }
         return repository.findById(id)
-                .map(c -> clientMapper.merge(patch, c))
-                .map(repository::save)
                 .map(detailsMapper::from)
                 .orElseThrow(ClientNotFoundException::new);
     }
 
+    /**
+     * Removes the client without loading it first, unless the second-level cache is enabled. Deleting a client that does
+     * not exist is a no-op.
+     */
     public void delete(Long id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
+        repository.purgeById(id);
+    }
+
+    /**
+     * Rebuilds the {@link IdFilter} from the id column, streamed in one transaction. It is not read-only, so it reads
+     * from the primary even when read-only transactions go to a replica, and a lagging replica cannot drop ids.
+     */
+    @Transactional
+    public void rebuildIdFilter() {
+        idFilter.rebuild(repository.count(), repository::streamAllIds);
+    }
+
+    private int patch(Long id, Map<String, Object> changes) {
+        try {
+            return repository.patch(id, changes);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateVatNumberOr(e);
+        }
+    }
+
+    private static RuntimeException duplicateVatNumberOr(DataIntegrityViolationException e) {
+        return isDuplicateVatNumber(e) ? new DuplicateVatNumberException() : e;
+    }
+
+    /**
+     * Whether {@code e} was raised by the unique VAT number index. Any other integrity violation is not a conflict
+     * the caller can resolve, so it is not reported as one.
+     */
+    static boolean isDuplicateVatNumber(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException violation
+                    && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(VAT_NUMBER_INDEX);
+            }
+        }
+        return false;
+    }
+
+    private void validate(Map<String, Object> changes) {
+        var violations = new HashSet<ConstraintViolation<Client>>();
+        changes.forEach((property, value) -> violations.addAll(validator.validateValue(Client.class, property, value)));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
         }
     }
 }
@@ -0,0 +1,213 @@
+package es.imaut.clientapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.imaut.clientapi.exception.IdempotencyKeyInProgressException;
+import es.imaut.clientapi.exception.IdempotencyKeyMismatchException;
+import es.imaut.clientapi.exception.IdempotencyKeyOutcomeUnknownException;
+import es.imaut.clientapi.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Makes retried creates safe. The first request with a given {@code Idempotency-Key} runs and its response is kept
+ * for the time to live, so a retry with the same key and request gets that response back instead of creating
+ * again. A retry that arrives while the first request is still running waits for it instead of racing it, for at
+ * most the wait timeout, and reusing a key for a different request is rejected.
+ * <p>
+ * Keys are held in a bounded in-memory cache. With a repository, keys are also claimed in the
+ * {@code idempotency_key} table, so retries that reach another instance, or this one after a restart, are replayed
+ * too. A retry that finds its key claimed but not yet completed there polls until the wait timeout.
+ * <p>
+ * A claim is only released when the request fails. If the request succeeds but its response cannot be stored, or the
+ * instance stops while it runs, the request may well have created something, so the claim is kept rather than risk
+ * a duplicate: retries here are answered with a conflict right away, retries elsewhere once they give up waiting,
+ * until the key expires after the time to live. Such keys are not swept earlier; a client that needs to go on sooner
+ * has to check what was created and use a new key.
+ * <p>
+ * Requests are counted in {@code idempotency.requests}, tagged with whether they were {@code executed} or
+ * {@code replayed}; the in-memory cache publishes the usual cache metrics as {@code idempotency}.
+ */
+public class IdempotencyService {
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final Cache<String, Entry> entries;
+    private final IdempotencyRecordRepository repository;
+    private final Duration timeToLive;
+    private final Duration waitTimeout;
+    private final ObjectMapper objectMapper;
+    private final Counter executed;
+    private final Counter replayed;
+
+    /**
+     * @param repository the table to claim keys in, or {@code null} to keep keys in memory only
+     */
+    public IdempotencyService(long maxEntries, Duration timeToLive, IdempotencyRecordRepository repository,
+                              Duration waitTimeout, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        this.repository = repository;
+        this.timeToLive = timeToLive;
+        this.waitTimeout = waitTimeout;
+        this.objectMapper = objectMapper;
+        this.executed = counter("executed", meterRegistry);
+        this.replayed = counter("replayed", meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "idempotency");
+    }
+
+    public <T> T execute(String key, Object request, Class<T> responseType, Supplier<T> action) {
+        var requestHash = hash(request);
+        var entry = new Entry(requestHash, new CompletableFuture<>());
+        var running = entries.asMap().putIfAbsent(key, entry);
+        if (running != null) {
+            if (!running.requestHash().equals(requestHash)) {
+                throw new IdempotencyKeyMismatchException();
+            }
+            var response = responseType.cast(await(running.response()));
+            replayed.increment();
+            return response;
+        }
+        try {
+            var response = repository == null ? run(action) : runClaimed(key, requestHash, responseType, action, entry);
+            // Does nothing if the response could not be stored and the entry already answers retries with a conflict.
+            entry.response().complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(key, entry);
+            entry.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private <T> T run(Supplier<T> action) {
+        var response = action.get();
+        executed.increment();
+        return response;
+    }
+
+    private <T> T runClaimed(String key, String requestHash, Class<T> responseType, Supplier<T> action, Entry entry) {
+        var deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (!claim(key, requestHash)) {
+            var claimed = repository.findResponse(key).orElse(null);
+            var expiry = Instant.now().minus(timeToLive);
+            if (claimed != null && claimed.createdAt().isBefore(expiry)) {
+                repository.purgeByKeyCreatedBefore(key, expiry);
+                continue;
+            }
+            if (claimed != null && !claimed.requestHash().equals(requestHash)) {
+                throw new IdempotencyKeyMismatchException();
+            }
+            if (claimed != null && claimed.response() != null) {
+                var response = read(claimed.response(), responseType);
+                replayed.increment();
+                return response;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IdempotencyKeyInProgressException();
+            }
+            pause();
+        }
+        T response;
+        try {
+            response = run(action);
+        } catch (RuntimeException | Error e) {
+            repository.release(key);
+            throw e;
+        }
+        try {
+            repository.complete(key, write(response));
+        } catch (RuntimeException e) {
+            entry.response().completeExceptionally(new IdempotencyKeyOutcomeUnknownException());
+        }
+        return response;
+    }
+
+    private boolean claim(String key, String requestHash) {
+        try {
+            repository.claim(key, requestHash, Instant.now());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored response", e);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> response) {
+        try {
+            return response.get(waitTimeout.toNanos(), NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException();
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException();
+        }
+    }
+
+    private static Counter counter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("idempotency.requests")
+                .description("Requests carrying an Idempotency-Key")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(String requestHash, CompletableFuture<Object> response) {
+    }
+}
@@ -0,0 +1,97 @@
+package es.imaut.clientapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Try acquire should reject calls over the limit until a permit is released")
+    void tryAcquireShouldRejectCallsOverTheLimitUntilAPermitIsReleased() {
+        var limiter = limiter(2, 10);
+        var first = limiter.tryAcquire();
+        assertThat(limiter.tryAcquire()).isPresent();
+        assertThat(limiter.tryAcquire()).isEmpty();
+        first.orElseThrow().release();
+        assertThat(limiter.tryAcquire()).isPresent();
+        assertThat(meterRegistry.get("http.server.concurrency.rejected").tag("name", "test").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Release should raise the limit while fast calls use it")
+    void releaseShouldRaiseTheLimitWhileFastCallsUseIt() {
+        var limiter = limiter(2, 10);
+        for (int i = 0; i < 20; i++) {
+            runConcurrently(limiter, limiter.getLimit(), 10);
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(2);
+    }
+
+    @Test
+    @DisplayName("Release should not raise the limit while it is mostly unused")
+    void releaseShouldNotRaiseTheLimitWhileItIsMostlyUnused() {
+        var limiter = limiter(10, 20);
+        for (int i = 0; i < 50; i++) {
+            runConcurrently(limiter, 1, 10);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Release should cut the limit once per window of slow calls")
+    void releaseShouldCutTheLimitOncePerWindowOfSlowCalls() {
+        var limiter = limiter(10, 20);
+        runConcurrently(limiter, 1, 10);
+        runConcurrently(limiter, 5, 50);
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        runConcurrently(limiter, 5, 50);
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("Limit should stay between one and max limit")
+    void limitShouldStayBetweenOneAndMaxLimit() {
+        var limiter = limiter(3, 4);
+        for (int i = 0; i < 50; i++) {
+            runConcurrently(limiter, limiter.getLimit(), 10);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        for (int i = 0; i < 50; i++) {
+            runConcurrently(limiter, 1, 1000);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Gauges should publish limit and calls in flight")
+    void gaugesShouldPublishLimitAndCallsInFlight() {
+        var limiter = limiter(5, 10);
+        limiter.tryAcquire();
+        assertThat(meterRegistry.get("http.server.concurrency.limit").tag("name", "test").gauge().value()).isEqualTo(5.0);
+        assertThat(meterRegistry.get("http.server.concurrency.in.flight").tag("name", "test").gauge().value()).isEqualTo(1.0);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, maxLimit, meterRegistry, clock::get);
+    }
+
+    private void runConcurrently(AdaptiveConcurrencyLimiter limiter, int calls, long latencyMillis) {
+        var permits = new ArrayList<AdaptiveConcurrencyLimiter.Permit>();
+        for (int i = 0; i < calls; i++) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        clock.addAndGet(MILLISECONDS.toNanos(latencyMillis));
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+        clock.incrementAndGet();
+    }
+}
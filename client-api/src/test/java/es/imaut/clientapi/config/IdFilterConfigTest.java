@@ -0,0 +1,99 @@
+package es.imaut.clientapi.config;
+
+import es.imaut.clientapi.domain.CreateClientRequest;
+import es.imaut.clientapi.exception.ClientNotFoundException;
+import es.imaut.clientapi.service.ClientService;
+import es.imaut.clientapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static es.imaut.clientapi.config.IdFilterConfig.CLIENT_FILTER;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@SpringBootTest(properties = { "id-filter.enabled=true", "id-filter.recent-ids=0" })
+@ActiveProfiles("test")
+class IdFilterConfigTest {
+    private static final String INSERT_CLIENT = "insert into client (id, name, vat_number, street_address, postcode, city, country) "
+            + "values (?, 'Client', ?, '1 Main street', 'PC01', 'Capital', 'Abroad')";
+    @Autowired
+    private ClientService service;
+    @Autowired
+    private IdFilter idFilter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update(INSERT_CLIENT, 100000L, "100000");
+        jdbcTemplate.update(INSERT_CLIENT, 100002L, "100002");
+        service.rebuildIdFilter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from client");
+    }
+
+    @Test
+    @DisplayName("IT: find by id should answer absent ids from the filter")
+    void findByIdShouldAnswerAbsentIdsFromTheFilter() {
+        var absent = lookups("absent");
+        assertThatThrownBy(() -> service.findById(100001L))
+                .isInstanceOf(ClientNotFoundException.class);
+        assertThat(lookups("absent")).isEqualTo(absent + 1);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should find existing and created clients")
+    void findByIdShouldFindExistingAndCreatedClients() {
+        var request = new CreateClientRequest();
+        request.setName("Created");
+        request.setVatNumber("0987654321");
+        request.setStreetAddress("2 Main street");
+        request.setPostcode("PC02");
+        request.setCity("Capital");
+        request.setCountry("Abroad");
+        var created = service.create(request);
+        var present = lookups("present");
+        assertThat(service.findById(100000L).getName()).isEqualTo("Client");
+        assertThat(service.findById(created.getId()).getName()).isEqualTo("Created");
+        assertThat(lookups("present")).isEqualTo(present + 2);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should look up ids above the highest rebuilt id")
+    void findByIdShouldLookUpIdsAboveTheHighestRebuiltId() {
+        jdbcTemplate.update(INSERT_CLIENT, 100003L, "100003");
+        assertThat(service.findById(100003L).getName()).isEqualTo("Client");
+    }
+
+    @Test
+    @DisplayName("IT: rebuild should drop deleted ids")
+    void rebuildShouldDropDeletedIds() {
+        service.delete(100000L);
+        assertThat(idFilter.mightContain(100000L)).isTrue();
+        service.rebuildIdFilter();
+        assertThat(idFilter.mightContain(100000L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("IT: expected false positive rate should be published")
+    void expectedFalsePositiveRateShouldBePublished() {
+        assertThat(meterRegistry.get("id.filter.expected.false.positive.rate").tag("name", CLIENT_FILTER).gauge().value())
+                .isBetween(0.0, 0.01);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("id.filter.lookups").tag("name", CLIENT_FILTER).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,138 @@
+package es.imaut.clientapi.config;
+
+import es.imaut.clientapi.RandomClientExtension;
+import es.imaut.clientapi.model.Client;
+import es.imaut.clientapi.repository.ClientRepository;
+import es.imaut.clientapi.service.ClientService;
+import io.github.glytching.junit.extension.random.Random;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static es.imaut.clientapi.config.SecondLevelCacheConfig.CLIENT_REGION;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest(properties = { "second-level-cache.enabled=true" })
+@ExtendWith({ RandomClientExtension.class })
+@ActiveProfiles("test")
+class SecondLevelCacheConfigTest {
+    @Autowired
+    private ClientRepository repository;
+    @Autowired
+    private ClientService service;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("IT: find by id should load client from second-level cache")
+    void findByIdShouldLoadClientFromSecondLevelCache(@Random Client client) {
+        client.setId(null);
+        var id = repository.save(client).getId();
+        statistics.clear();
+        repository.findById(id).orElseThrow();
+        repository.findById(id).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics(CLIENT_REGION).getHitCount()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should not return stale client after patch")
+    void findByIdShouldNotReturnStaleClientAfterPatch(@Random Client client) {
+        client.setId(null);
+        var saved = repository.save(client);
+        repository.findById(saved.getId()).orElseThrow();
+        var result = service.update(saved.getId(), createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        assertThat(result.getName()).isEqualTo("Patched");
+        assertThat(result.getVersion()).isEqualTo(saved.getVersion() + 1);
+        assertThat(repository.findById(saved.getId()).orElseThrow().getName()).isEqualTo("Patched");
+    }
+
+    @Test
+    @DisplayName("IT: patch should keep other cached clients")
+    void patchShouldKeepOtherCachedClients(@Random Client client, @Random Client other) {
+        var patched = cached(client);
+        var kept = cached(other);
+        service.update(patched, createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        statistics.clear();
+        repository.findById(kept).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("IT: delete should keep other cached clients")
+    void deleteShouldKeepOtherCachedClients(@Random Client client, @Random Client other) {
+        var deleted = cached(client);
+        var kept = cached(other);
+        service.delete(deleted);
+        service.delete(Long.MAX_VALUE);
+        statistics.clear();
+        repository.findById(kept).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(repository.findById(deleted)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("IT: find version by id should not return stale version after patch")
+    void findVersionByIdShouldNotReturnStaleVersionAfterPatch(@Random Client client) {
+        var id = cached(client);
+        var version = repository.findVersionById(id).orElseThrow();
+        service.update(id, createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        assertThat(repository.findVersionById(id).orElseThrow()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("IT: find version by id should be served from query cache")
+    void findVersionByIdShouldBeServedFromQueryCache(@Random Client client) {
+        client.setId(null);
+        var id = repository.save(client).getId();
+        statistics.clear();
+        repository.findVersionById(id).orElseThrow();
+        repository.findVersionById(id).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("IT: second-level cache metrics should be published per region")
+    void secondLevelCacheMetricsShouldBePublishedPerRegion(@Random Client client) {
+        client.setId(null);
+        var id = repository.save(client).getId();
+        repository.findById(id).orElseThrow();
+        var hits = meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", CLIENT_REGION).tag("result", "hit").functionCounter();
+        assertThat(hits).isNotNull();
+        assertThat(hits.count()).isPositive();
+    }
+
+    private Long cached(Client client) {
+        client.setId(null);
+        var id = repository.save(client).getId();
+        repository.findById(id).orElseThrow();
+        return id;
+    }
+}
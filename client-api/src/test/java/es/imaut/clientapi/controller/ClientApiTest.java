@@ -1,7 +1,11 @@
 package es.imaut.clientapi.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.clientapi.RandomClientExtension;
+import es.imaut.clientapi.StatementRecorder;
+import es.imaut.clientapi.domain.ClientImportResponse;
+import es.imaut.clientapi.domain.ClientImportResponse.ClientImportError;
 import es.imaut.clientapi.domain.ClientResponse;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import io.github.glytching.junit.extension.random.Random;
@@ -12,24 +16,41 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlGroup;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
 import java.util.List;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
+import static es.imaut.clientapi.controller.ClientController.IDEMPOTENCY_KEY;
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.COMPLETED;
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.QUEUED;
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.RUNNING;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_METHOD;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 @AutoConfigureWebTestClient
+@Import(StatementRecorder.class)
 @ExtendWith({ RandomClientExtension.class })
 @ActiveProfiles("test")
 class ClientApiTest {
@@ -38,6 +59,10 @@ class ClientApiTest {
     private int port;
     @Autowired
     private WebTestClient webClient;
+    @Autowired
+    private StatementRecorder statementRecorder;
+    @Autowired
+    private ObjectMapper objectMapper;
     private final Supplier<String> clientsUrl = () -> url.apply(port) + "/clients";
     private final Supplier<String> clientsIdUrl = () -> url.apply(port) + "/clients/%d";
 
@@ -48,6 +73,23 @@ class ClientApiTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    @DisplayName("IT: GET /clients should be recorded in persistence metrics")
+    void getClientsShouldBeRecordedInPersistenceMetrics() {
+        webClient.get().uri(clientsUrl.get()).exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hibernate.statements?tag=status:prepared").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/spring.data.repository.invocations"
+                        + "?tag=repository:ClientRepository&tag=state:SUCCESS").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hikaricp.connections.acquire").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+    }
+
     @Test
     @DisplayName("IT: GET /clients should return empty list")
     void getClientsShouldReturnEmptyList() {
@@ -67,12 +109,103 @@ class ClientApiTest {
                 .expectBodyList(ClientResponse.class)
                 .hasSize(3)
                 .contains(
-                        new ClientResponse(1L, "Client 1", "1234567890", "1 Main street", "PC01", "Capital", "Abroad"),
-                        new ClientResponse(2L, "Client 2", "2345678901", "2 Main street", "PC02", "Village", "Inland"),
-                        new ClientResponse(3L, "Client 3", "3456789012", "3 Main street", "PC03", "Town", "Overseas")
+                        new ClientResponse(1L, "Client 1", "1234567890", "1 Main street", "PC01", "Capital", "Abroad", 0L),
+                        new ClientResponse(2L, "Client 2", "2345678901", "2 Main street", "PC02", "Village", "Inland", 0L),
+                        new ClientResponse(3L, "Client 3", "3456789012", "3 Main street", "PC03", "Town", "Overseas", 0L)
                 );
     }
 
+    @Test
+    @DisplayName("IT: GET /clients should return next page from cursor")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsShouldReturnNextPageFromCursor.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsShouldReturnNextPageFromCursor() {
+        var cursor = webClient.get().uri(clientsUrl.get() + "?limit=2").exchange()
+                .expectHeader().exists(ClientController.NEXT_CURSOR_HEADER)
+                .expectBodyList(ClientResponse.class)
+                .hasSize(2)
+                .returnResult().getResponseHeaders().getFirst(ClientController.NEXT_CURSOR_HEADER);
+        webClient.get().uri(clientsUrl.get() + "?limit=2&after=" + cursor).exchange()
+                .expectHeader().doesNotExist(ClientController.NEXT_CURSOR_HEADER)
+                .expectBodyList(ClientResponse.class)
+                .hasSize(1)
+                .contains(new ClientResponse(3L, "Client 3", "3456789012", "3 Main street", "PC03", "Town", "Overseas", 0L));
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients should be gzip encoded when client accepts gzip")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsShouldBeGzipEncodedWhenClientAcceptsGzip.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsShouldBeGzipEncodedWhenClientAcceptsGzip() throws IOException, InterruptedException {
+        // The web test client decompresses transparently and drops the header, so a plain client is used here.
+        var response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(clientsUrl.get())).header(ACCEPT_ENCODING, "gzip").build(),
+                BodyHandlers.ofInputStream());
+        assertThat(response.headers().firstValue(CONTENT_ENCODING)).contains("gzip");
+        try (var gzip = new GZIPInputStream(response.body())) {
+            assertThat(objectMapper.readValue(gzip, ClientResponse[].class)).hasSize(50);
+        }
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients should return 400 Bad Request above maximum page size")
+    void getClientsShouldReturn400BadRequestAboveMaximumPageSize() {
+        webClient.get().uri(clientsUrl.get() + "?limit=" + (ClientController.MAX_PAGE_SIZE + 1)).exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/search should return clients matching every filter")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsSearchShouldReturnMatchingClients.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsSearchShouldReturnClientsMatchingEveryFilter() {
+        webClient.get().uri(clientsUrl.get() + "/search?name=Acme&country=Spain&city=Madrid").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ClientResponse.class)
+                .hasSize(2)
+                .contains(
+                        new ClientResponse(1L, "Acme Iberia", "B12345678", "1 Gran Via", "28013", "Madrid", "Spain", 0L),
+                        new ClientResponse(3L, "Acme Madrid", "B34567890", "3 Calle Mayor", "28013", "Madrid", "Spain", 0L)
+                );
+        webClient.get().uri(clientsUrl.get() + "/search?vatNumber=PT123456789").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ClientResponse.class)
+                .hasSize(1)
+                .contains(new ClientResponse(4L, "Acme Lisboa", "PT123456789", "4 Rua Augusta", "1100-053", "Lisboa", "Portugal", 0L));
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/search by name should return next page in name order from cursor")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsSearchShouldReturnMatchingClients.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsSearchByNameShouldReturnNextPageInNameOrderFromCursor() {
+        var cursor = webClient.get().uri(clientsUrl.get() + "/search?name=Acme&limit=2").exchange()
+                .expectHeader().exists(ClientController.NEXT_CURSOR_HEADER)
+                .expectBodyList(ClientResponse.class)
+                .contains(
+                        new ClientResponse(1L, "Acme Iberia", "B12345678", "1 Gran Via", "28013", "Madrid", "Spain", 0L),
+                        new ClientResponse(2L, "Acme Levante", "B23456789", "2 Calle Colon", "46004", "Valencia", "Spain", 0L)
+                )
+                .hasSize(2)
+                .returnResult().getResponseHeaders().getFirst(ClientController.NEXT_CURSOR_HEADER);
+        webClient.get().uri(clientsUrl.get() + "/search?name=Acme&limit=2&after=" + cursor).exchange()
+                .expectHeader().doesNotExist(ClientController.NEXT_CURSOR_HEADER)
+                .expectBodyList(ClientResponse.class)
+                .contains(
+                        new ClientResponse(4L, "Acme Lisboa", "PT123456789", "4 Rua Augusta", "1100-053", "Lisboa", "Portugal", 0L),
+                        new ClientResponse(3L, "Acme Madrid", "B34567890", "3 Calle Mayor", "28013", "Madrid", "Spain", 0L)
+                )
+                .hasSize(2);
+    }
+
     @Test
     @DisplayName("IT: GET /clients/{id} should return 404 Not found")
     void getClientsIdShouldReturn404NotFound() {
@@ -106,6 +239,47 @@ class ClientApiTest {
                 .hasFieldOrPropertyWithValue("name", "Client 1");
     }
 
+    @Test
+    @DisplayName("IT: GET /clients/{id} should be recorded in single flight metrics")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsIdShouldReturnClientFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsIdShouldBeRecordedInSingleFlightMetrics() {
+        webClient.get().uri(clientsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/single.flight.requests?tag=name:client&tag=result:loaded").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/single.flight.requests?tag=name:client&tag=result:coalesced").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/{id} should return 304 Not Modified until client is patched")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsIdShouldReturn304NotModifiedUntilClientIsPatched.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsIdShouldReturn304NotModifiedUntilClientIsPatched() {
+        var eTag = webClient.get().uri(clientsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        webClient.get().uri(clientsIdUrl.get().formatted(1L)).ifNoneMatch(eTag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        webClient.patch().uri(clientsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(clientsIdUrl.get().formatted(1L)).ifNoneMatch(eTag).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("ETag", value -> assertThat(value).isNotEqualTo(eTag))
+                .expectBody().jsonPath("$.name").isEqualTo("Renamed");
+    }
+
     @Test
     @DisplayName("IT: POST /clients should return 200 OK")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
@@ -114,6 +288,56 @@ class ClientApiTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    @DisplayName("IT: POST /clients with a VAT number already used should return 409 Conflict")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    void postClientsWithAVatNumberAlreadyUsedShouldReturn409Conflict(@Random CreateClientRequest request) {
+        webClient.post().uri(clientsUrl.get()).bodyValue(request).exchange()
+                .expectStatus().isOk();
+        webClient.post().uri(clientsUrl.get()).bodyValue(request).exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody().jsonPath("$.message").isEqualTo("A client with this VAT number already exists");
+    }
+
+    @Test
+    @DisplayName("IT: POST /clients/imports should upsert clients by VAT number and report rejected rows")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"postClientsImportsShouldUpsertClientsByVatNumber.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void postClientsImportsShouldUpsertClientsByVatNumberAndReportRejectedRows() throws InterruptedException {
+        var csv = new MultipartBodyBuilder();
+        csv.part("file", """
+                name,vatNumber,streetAddress,postcode,city,country
+                Renamed,1234567890,1 Main street,PC01,Capital,Abroad
+                Acme Iberia,B12345678,1 Gran Via,28013,Madrid,Spain
+                ,B23456789,2 Calle Colon,46004,Valencia,Spain
+                """.getBytes()).filename("clients.csv");
+        var started = webClient.post().uri(clientsUrl.get() + "/imports").contentType(MULTIPART_FORM_DATA)
+                .bodyValue(csv.build()).exchange()
+                .expectStatus().isAccepted()
+                .returnResult(ClientImportResponse.class);
+        var location = started.getResponseHeaders().getLocation();
+        var clientImport = started.getResponseBody().blockFirst();
+        for (int i = 0; i < 100 && (clientImport.status() == QUEUED || clientImport.status() == RUNNING); i++) {
+            Thread.sleep(50);
+            clientImport = webClient.get().uri(location).exchange()
+                    .expectStatus().isOk()
+                    .expectBody(ClientImportResponse.class).returnResult().getResponseBody();
+        }
+        assertThat(clientImport.status()).isEqualTo(COMPLETED);
+        assertThat(clientImport.rows()).isEqualTo(3);
+        assertThat(clientImport.inserted()).isEqualTo(1);
+        assertThat(clientImport.updated()).isEqualTo(1);
+        assertThat(clientImport.rejected()).isEqualTo(1);
+        assertThat(clientImport.errors()).asList()
+                .containsExactly(new ClientImportError(3, "name", "must not be blank"));
+        webClient.get().uri(clientsIdUrl.get().formatted(100000L)).exchange()
+                .expectBody().jsonPath("$.name").isEqualTo("Renamed");
+        webClient.get().uri(clientsUrl.get()).exchange()
+                .expectBodyList(ClientResponse.class).hasSize(2);
+    }
+
     @Test
     @DisplayName("IT: POST /clients should return 400 Bad Request")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
@@ -189,7 +413,7 @@ class ClientApiTest {
         var response = webClient.post().uri(clientsUrl.get()).bodyValue(request).exchange()
                 .expectBody(ClientResponse.class)
                 .returnResult().getResponseBody();
-        assertThat(response).hasNoNullFieldsOrProperties()
+        assertThat(response).hasNoNullFieldsOrPropertiesExcept("version")
                 .hasFieldOrPropertyWithValue("name", request.getName());
     }
 
@@ -313,10 +537,39 @@ class ClientApiTest {
                 .hasSize(1)
                 .returnResult().getResponseBody();
         assertThat(response).asList()
-                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version")
                 .isEqualTo(List.of(request));
     }
 
+    @Test
+    @DisplayName("IT: POST /clients retried with the same Idempotency-Key should create one client")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    void postClientsRetriedWithTheSameIdempotencyKeyShouldCreateOneClient(@Random CreateClientRequest request) {
+        var key = UUID.randomUUID().toString();
+        var first = webClient.post().uri(clientsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectBody(ClientResponse.class).returnResult().getResponseBody();
+        var retry = webClient.post().uri(clientsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectBody(ClientResponse.class).returnResult().getResponseBody();
+        assertThat(retry).isEqualTo(first);
+        webClient.get().uri(clientsUrl.get()).exchange()
+                .expectBodyList(ClientResponse.class).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("IT: POST /clients reusing an Idempotency-Key for another request should return 422 Unprocessable Entity")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    void postClientsReusingAnIdempotencyKeyForAnotherRequestShouldReturn422UnprocessableEntity(
+            @Random CreateClientRequest request, @Random CreateClientRequest other) {
+        var key = UUID.randomUUID().toString();
+        webClient.post().uri(clientsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(request).exchange()
+                .expectStatus().isOk();
+        webClient.post().uri(clientsUrl.get()).header(IDEMPOTENCY_KEY, key).bodyValue(other).exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody().jsonPath("$.message").isEqualTo("Idempotency-Key was already used for a different request");
+    }
+
     @Test
     @DisplayName("IT: GET /clients/{id} should return client created from POST /clients")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
@@ -389,4 +642,88 @@ class ClientApiTest {
                 .exchange()
                 .expectStatus().isNotFound();
     }
+
+    @Test
+    @DisplayName("IT: GET /clients should issue at most 1 statement regardless of row count")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsShouldReturnClientsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(clientsUrl.get()).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/search should issue at most 1 statement regardless of row count")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsSearchShouldReturnMatchingClients.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsSearchShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(clientsUrl.get() + "/search?country=Spain").exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/{id} should issue at most 1 statement")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsIdShouldReturnClientFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsIdShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(clientsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /clients/{id} with matching ETag should issue at most 1 statement")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getClientsIdShouldReturn304NotModifiedUntilClientIsPatched.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void getClientsIdWithMatchingETagShouldIssueAtMost1Statement() {
+        var eTag = webClient.get().uri(clientsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        assertStatementBudget(1, () -> webClient.get().uri(clientsIdUrl.get().formatted(1L)).ifNoneMatch(eTag).exchange()
+                .expectStatus().isNotModified());
+    }
+
+    @Test
+    @DisplayName("IT: POST /clients should issue at most 3 statements")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    void postClientsShouldIssueAtMost3Statements(@Random CreateClientRequest request) {
+        assertStatementBudget(3, () -> webClient.post().uri(clientsUrl.get()).bodyValue(request).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: PATCH /clients/{id} should issue at most 2 statements")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"patchClientsIdShouldReturnClientFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void patchClientsIdShouldIssueAtMost2Statements() {
+        assertStatementBudget(2, () -> webClient.patch().uri(clientsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: DELETE /clients/{id} should issue at most 1 statement")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"deleteClientsIdShouldDeleteClientFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanClientTable.sql"})
+    })
+    void deleteClientsIdShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.delete().uri(clientsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    private void assertStatementBudget(int budget, Runnable call) {
+        assertThat(statementRecorder.record(call)).asList().hasSizeLessThanOrEqualTo(budget);
+    }
 }
@@ -1,9 +1,14 @@
 package es.imaut.clientapi.controller;
 
+import es.imaut.clientapi.domain.ClientCursor;
 import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import es.imaut.clientapi.exception.ClientNotFoundException;
+import es.imaut.clientapi.exception.InvalidCursorException;
 import es.imaut.clientapi.service.ClientService;
+import es.imaut.clientapi.service.IdempotencyService;
 import io.github.glytching.junit.extension.random.Random;
 import io.github.glytching.junit.extension.random.RandomBeansExtension;
 import jakarta.validation.ConstraintViolationException;
@@ -13,6 +18,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.json.JsonMergePatch;
 import java.util.List;
@@ -23,44 +32,117 @@ import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.data.domain.PageRequest.ofSize;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
 
 @ExtendWith({ MockitoExtension.class, RandomBeansExtension.class })
 class ClientControllerTest {
     @Mock
     private ClientService service;
+    @Mock
+    private IdempotencyService idempotency;
     @InjectMocks
     private ClientController controller;
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest("GET", "/clients/1");
+    private final ServletWebRequest request = new ServletWebRequest(httpRequest, new MockHttpServletResponse());
 
     @Test
     @DisplayName("Find all should call service")
     void findAllShouldCallService() {
-        controller.findAll();
-        verify(service).findAll();
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        controller.findAll(null, 100);
+        verify(service).findAll(0L, 100);
+    }
+
+    @Test
+    @DisplayName("Find all should call service with decoded cursor")
+    void findAllShouldCallServiceWithDecodedCursor() {
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        controller.findAll(ClientCursor.encode(42L), 10);
+        verify(service).findAll(42L, 10);
+    }
+
+    @Test
+    @DisplayName("Find all should throw invalid cursor exception")
+    void findAllShouldThrowInvalidCursorException() {
+        assertThatThrownBy(() -> controller.findAll("not a cursor", 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    @DisplayName("Search should call service with filters and decoded cursor")
+    void searchShouldCallServiceWithFiltersAndDecodedCursor(@Random ClientSearchRequest search) {
+        when(service.search(any(), any(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        controller.search(search, ClientSearchCursor.encode("Acme", 42L), 10);
+        verify(service).search(search, new ClientSearchCursor("Acme", 42L), 10);
+    }
+
+    @Test
+    @DisplayName("Search should return next cursor when there are more clients")
+    void searchShouldReturnNextCursor(@Random(type = ClientResponse.class) List<ClientResponse> clients) {
+        when(service.search(any(), any(), anyInt())).thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        var result = controller.search(new ClientSearchRequest(), null, clients.size());
+        assertThat(result.getBody()).asList().hasSameSizeAs(clients);
+        assertThat(result.getHeaders().getFirst(ClientController.NEXT_CURSOR_HEADER))
+                .isEqualTo(ClientSearchCursor.encode(null, clients.get(clients.size() - 1).getId()));
+    }
+
+    @Test
+    @DisplayName("Search by name should return next cursor with name and id of last client")
+    void searchByNameShouldReturnNextCursorWithNameAndIdOfLastClient(@Random(type = ClientResponse.class) List<ClientResponse> clients) {
+        when(service.search(any(), any(), anyInt())).thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        var search = new ClientSearchRequest();
+        search.setName("Acme");
+        var result = controller.search(search, null, clients.size());
+        var last = clients.get(clients.size() - 1);
+        assertThat(ClientSearchCursor.decode(result.getHeaders().getFirst(ClientController.NEXT_CURSOR_HEADER)))
+                .isEqualTo(new ClientSearchCursor(last.getName(), last.getId()));
     }
 
     @Test
     @DisplayName("Find all should return 200 OK")
     void findAllShouldReturn200Ok() {
-        var result = controller.findAll();
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        var result = controller.findAll(null, 100);
         assertThat(result).hasFieldOrPropertyWithValue("status", OK);
     }
 
     @Test
     @DisplayName("Find all should return clients from service")
     void findAllShouldReturnClientsFromService(@Random(type = ClientResponse.class) List<ClientResponse> clients) {
-        when(service.findAll()).thenReturn(clients);
-        var result = controller.findAll();
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(clients));
+        var result = controller.findAll(null, 100);
         assertThat(result.getBody()).asList().hasSameSizeAs(clients)
                 .usingRecursiveFieldByFieldElementComparator().isEqualTo(clients);
     }
 
+    @Test
+    @DisplayName("Find all should return next cursor when there are more clients")
+    void findAllShouldReturnNextCursor(@Random(type = ClientResponse.class) List<ClientResponse> clients) {
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        var result = controller.findAll(null, clients.size());
+        assertThat(result.getHeaders().getFirst(ClientController.NEXT_CURSOR_HEADER))
+                .isEqualTo(ClientCursor.encode(clients.get(clients.size() - 1).getId()));
+    }
+
+    @Test
+    @DisplayName("Find all should not return next cursor on last page")
+    void findAllShouldNotReturnNextCursorOnLastPage(@Random(type = ClientResponse.class) List<ClientResponse> clients) {
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(clients));
+        var result = controller.findAll(null, 100);
+        assertThat(result.getHeaders().containsKey(ClientController.NEXT_CURSOR_HEADER)).isFalse();
+    }
+
     @Test
     @DisplayName("Find by id should call service")
-    void findByIdShouldCallService() {
-        controller.findById(1L);
+    void findByIdShouldCallService(@Random ClientResponse response) {
+        when(service.findById(1L)).thenReturn(response);
+        controller.findById(1L, request);
         verify(service).findById(1L);
     }
 
@@ -68,7 +150,7 @@ class ClientControllerTest {
     @DisplayName("Find by id should throw client not found exception")
     void findByIdShouldThrowClientNotFoundException() {
         when(service.findById(1L)).thenThrow(new ClientNotFoundException());
-        assertThatThrownBy(() -> controller.findById(1L))
+        assertThatThrownBy(() -> controller.findById(1L, request))
                 .isInstanceOf(ClientNotFoundException.class);
     }
 
@@ -76,7 +158,7 @@ class ClientControllerTest {
     @DisplayName("Find by id should return 200 OK")
     void findByIdShouldReturn200Ok(@Random ClientResponse response) {
         when(service.findById(response.getId())).thenReturn(response);
-        var result = controller.findById(response.getId());
+        var result = controller.findById(response.getId(), request);
         assertThat(result).hasFieldOrPropertyWithValue("status", OK);
     }
 
@@ -84,31 +166,70 @@ class ClientControllerTest {
     @DisplayName("Find by id should return client from service")
     void findByIdShouldReturnClientFromService(@Random ClientResponse response) {
         when(service.findById(response.getId())).thenReturn(response);
-        var result = controller.findById(response.getId());
+        var result = controller.findById(response.getId(), request);
+        assertThat(result.getBody()).isEqualTo(response);
+    }
+
+    @Test
+    @DisplayName("Find by id should return ETag from client version")
+    void findByIdShouldReturnETagFromClientVersion(@Random ClientResponse response) {
+        when(service.findById(response.getId())).thenReturn(response);
+        var result = controller.findById(response.getId(), request);
+        assertThat(result.getHeaders().getETag()).isEqualTo("\"" + response.getVersion() + "\"");
+    }
+
+    @Test
+    @DisplayName("Find by id should return 304 Not Modified without reading client")
+    void findByIdShouldReturn304NotModifiedWithoutReadingClient() {
+        httpRequest.addHeader(IF_NONE_MATCH, "\"3\"");
+        when(service.findVersion(1L)).thenReturn(3L);
+        var result = controller.findById(1L, request);
+        assertThat(result).hasFieldOrPropertyWithValue("status", NOT_MODIFIED);
+        verify(service, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Find by id should return client when version changed")
+    void findByIdShouldReturnClientWhenVersionChanged(@Random ClientResponse response) {
+        httpRequest.addHeader(IF_NONE_MATCH, "\"" + (response.getVersion() - 1) + "\"");
+        when(service.findVersion(response.getId())).thenReturn(response.getVersion());
+        when(service.findById(response.getId())).thenReturn(response);
+        var result = controller.findById(response.getId(), request);
+        assertThat(result).hasFieldOrPropertyWithValue("status", OK);
         assertThat(result.getBody()).isEqualTo(response);
     }
 
     @Test
     @DisplayName("Create should call service")
     void createShouldCallService(@Random CreateClientRequest request) {
-        controller.create(request);
+        controller.create(null, request);
         verify(service).create(request);
     }
 
     @Test
     @DisplayName("Create should return 200 OK")
     void createShouldReturn200Ok(@Random CreateClientRequest request) {
-        var result = controller.create(request);
+        var result = controller.create(null, request);
         assertThat(result).hasFieldOrPropertyWithValue("status", OK);
     }
 
+    @Test
+    @DisplayName("Create with idempotency key should return client from idempotency service")
+    void createWithIdempotencyKeyShouldReturnClientFromIdempotencyService(@Random CreateClientRequest request, @Random ClientResponse details) {
+        when(idempotency.execute(eq("key"), eq(request), eq(ClientResponse.class), any()))
+                .thenReturn(details);
+        var result = controller.create("key", request);
+        assertThat(result.getBody()).isSameAs(details);
+        verify(service, never()).create(request);
+    }
+
     @Test
     @DisplayName("Create should return client from service")
     void createShouldReturnClientFromService(@Random CreateClientRequest request, @Random ClientResponse details) {
         details.setName(request.getName());
         when(service.create(argThat(request::equals)))
                 .thenReturn(details);
-        var result = controller.create(request);
+        var result = controller.create(null, request);
         assertThat(result.getBody())
                 .usingRecursiveComparison().isEqualTo(details);
     }
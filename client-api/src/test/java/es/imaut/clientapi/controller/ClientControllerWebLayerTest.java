@@ -2,10 +2,14 @@ package es.imaut.clientapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.clientapi.RandomClientExtension;
+import es.imaut.clientapi.domain.ClientCursor;
 import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import es.imaut.clientapi.exception.ClientNotFoundException;
 import es.imaut.clientapi.service.ClientService;
+import es.imaut.clientapi.service.IdempotencyService;
 import io.github.glytching.junit.extension.random.Random;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.DisplayName;
@@ -14,6 +18,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.web.servlet.MockMvc;
 
 import javax.json.JsonMergePatch;
@@ -22,8 +27,13 @@ import java.util.List;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.data.domain.PageRequest.ofSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = { ClientController.class })
@@ -35,10 +45,13 @@ class ClientControllerWebLayerTest {
     private ObjectMapper mapper;
     @MockBean
     private ClientService service;
+    @MockBean
+    private IdempotencyService idempotency;
 
     @Test
     @DisplayName("GET /clients should return 200 OK")
     void getClientsShouldReturn200Ok() throws Exception {
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
         mvc.perform(get("/clients"))
                 .andExpect(status().isOk());
     }
@@ -46,12 +59,57 @@ class ClientControllerWebLayerTest {
     @Test
     @DisplayName("GET /clients should return clients from service")
     void getClientsShouldReturnClientsFromService(@Random(type = ClientResponse.class) List<ClientResponse> clients) throws Exception {
-        when(service.findAll()).thenReturn(clients);
+        when(service.findAll(anyLong(), anyInt())).thenReturn(new SliceImpl<>(clients));
         var result = mvc.perform(get("/clients")).andReturn();
         assertThat(result.getResponse().getContentAsString())
                 .isEqualToIgnoringWhitespace(mapper.writeValueAsString(clients));
     }
 
+    @Test
+    @DisplayName("GET /clients should return next cursor header")
+    void getClientsShouldReturnNextCursorHeader(@Random(type = ClientResponse.class) List<ClientResponse> clients) throws Exception {
+        when(service.findAll(0L, clients.size())).thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        mvc.perform(get("/clients").param("limit", String.valueOf(clients.size())))
+                .andExpect(header().string(ClientController.NEXT_CURSOR_HEADER,
+                        ClientCursor.encode(clients.get(clients.size() - 1).getId())));
+    }
+
+    @Test
+    @DisplayName("GET /clients/search should bind filters from query parameters")
+    void getClientsSearchShouldBindFiltersFromQueryParameters() throws Exception {
+        when(service.search(any(), any(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        mvc.perform(get("/clients/search")
+                        .param("vatNumber", "B12345678")
+                        .param("name", "Acme")
+                        .param("country", "Spain")
+                        .param("city", "Madrid"))
+                .andExpect(status().isOk());
+        verify(service).search(argThat(s -> s.getVatNumber().equals("B12345678") && s.getName().equals("Acme")
+                && s.getCountry().equals("Spain") && s.getCity().equals("Madrid")), eq(ClientSearchCursor.FIRST), eq(100));
+    }
+
+    @Test
+    @DisplayName("GET /clients/search should return 400 Bad Request above maximum page size")
+    void getClientsSearchShouldReturn400BadRequestAboveMaximumPageSize() throws Exception {
+        mvc.perform(get("/clients/search").param("limit", String.valueOf(ClientController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        verify(service, never()).search(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /clients should return 400 Bad Request for invalid cursor")
+    void getClientsShouldReturn400BadRequestForInvalidCursor() throws Exception {
+        mvc.perform(get("/clients").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /clients should return 400 Bad Request above maximum page size")
+    void getClientsShouldReturn400BadRequestAboveMaximumPageSize() throws Exception {
+        mvc.perform(get("/clients").param("limit", String.valueOf(ClientController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET /clients/{id} should return 404 Not found")
     void getClientsIdShouldReturn404NotFound() throws Exception {
@@ -68,6 +126,26 @@ class ClientControllerWebLayerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /clients/{id} should return ETag")
+    void getClientsIdShouldReturnETag(@Random ClientResponse response) throws Exception {
+        when(service.findById(response.getId())).thenReturn(response);
+        mvc.perform(get("/clients/" + response.getId()))
+                .andExpect(header().string("ETag", "\"" + response.getVersion() + "\""));
+    }
+
+    @Test
+    @DisplayName("GET /clients/{id} should return 304 Not Modified without reading client")
+    void getClientsIdShouldReturn304NotModifiedWithoutReadingClient() throws Exception {
+        when(service.findVersion(1L)).thenReturn(3L);
+        var result = mvc.perform(get("/clients/1").header(IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEmpty();
+        verify(service, never()).findById(anyLong());
+    }
+
     @Test
     @DisplayName("GET /clients/{id} should return client from service")
     void getClientsIdShouldReturnClientFromService(@Random ClientResponse response) throws Exception {
@@ -127,6 +205,31 @@ class ClientControllerWebLayerTest {
                 .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
     }
 
+    @Test
+    @DisplayName("POST /clients with Idempotency-Key should return client from idempotency service")
+    void postClientsWithIdempotencyKeyShouldReturnClientFromIdempotencyService(@Random CreateClientRequest body, @Random ClientResponse response) throws Exception {
+        when(idempotency.execute(eq("key"), eq(body), eq(ClientResponse.class), any())).thenReturn(response);
+        var request = post("/clients")
+                .header("Idempotency-Key", "key")
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(body));
+        var result = mvc.perform(request).andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
+        verify(service, never()).create(any());
+    }
+
+    @Test
+    @DisplayName("POST /clients with too long Idempotency-Key should return 400 Bad Request")
+    void postClientsWithTooLongIdempotencyKeyShouldReturn400BadRequest(@Random CreateClientRequest body) throws Exception {
+        var request = post("/clients")
+                .header("Idempotency-Key", "k".repeat(256))
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(body));
+        mvc.perform(request).andExpect(status().isBadRequest());
+        verify(idempotency, never()).execute(any(), any(), any(), any());
+    }
+
     @Test
     @DisplayName("PATCH /clients/{id} should return 404 Not found")
     void patchClientsIdShouldReturn404NotFound() throws Exception {
@@ -0,0 +1,108 @@
+package es.imaut.clientapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.imaut.clientapi.domain.ClientImportResponse;
+import es.imaut.clientapi.exception.ClientImportNotFoundException;
+import es.imaut.clientapi.exception.InvalidClientImportException;
+import es.imaut.clientapi.service.ClientImportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.QUEUED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = { ClientImportController.class })
+class ClientImportControllerWebLayerTest {
+    private static final ClientImportResponse QUEUED_IMPORT = ClientImportResponse.builder()
+            .id(UUID.fromString("0b6d7ea2-4c0f-4f43-9a57-6b1b0e2f1c11"))
+            .status(QUEUED)
+            .errors(List.of())
+            .startedAt(Instant.parse("2023-01-01T00:00:00Z"))
+            .build();
+    private static final MockMultipartFile FILE = new MockMultipartFile("file", "clients.csv", "text/csv",
+            "name,vatNumber,streetAddress,postcode,city,country\n".getBytes(UTF_8));
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper mapper;
+    @MockBean
+    private ClientImportService service;
+
+    @Test
+    @DisplayName("POST /clients/imports should return 202 Accepted with import location")
+    void postClientsImportsShouldReturn202AcceptedWithImportLocation() throws Exception {
+        when(service.start(any())).thenReturn(QUEUED_IMPORT);
+        mvc.perform(multipart("/clients/imports").file(FILE))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/clients/imports/" + QUEUED_IMPORT.id()));
+    }
+
+    @Test
+    @DisplayName("POST /clients/imports should return import from service")
+    void postClientsImportsShouldReturnImportFromService() throws Exception {
+        when(service.start(any())).thenReturn(QUEUED_IMPORT);
+        var result = mvc.perform(multipart("/clients/imports").file(FILE)).andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(QUEUED_IMPORT));
+    }
+
+    @Test
+    @DisplayName("POST /clients/imports without file should return 400 Bad Request")
+    void postClientsImportsWithoutFileShouldReturn400BadRequest() throws Exception {
+        mvc.perform(multipart("/clients/imports"))
+                .andExpect(status().isBadRequest());
+        verify(service, never()).start(any());
+    }
+
+    @Test
+    @DisplayName("POST /clients/imports with empty file should return 400 Bad Request")
+    void postClientsImportsWithEmptyFileShouldReturn400BadRequest() throws Exception {
+        when(service.start(any())).thenThrow(new InvalidClientImportException());
+        mvc.perform(multipart("/clients/imports").file(new MockMultipartFile("file", new byte[0])))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /clients/imports/{id} should return import from service")
+    void getClientsImportsIdShouldReturnImportFromService() throws Exception {
+        when(service.findById(QUEUED_IMPORT.id())).thenReturn(QUEUED_IMPORT);
+        var result = mvc.perform(get("/clients/imports/" + QUEUED_IMPORT.id()))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(QUEUED_IMPORT));
+    }
+
+    @Test
+    @DisplayName("GET /clients/imports/{id} should return 404 Not found")
+    void getClientsImportsIdShouldReturn404NotFound() throws Exception {
+        when(service.findById(QUEUED_IMPORT.id())).thenThrow(new ClientImportNotFoundException());
+        mvc.perform(get("/clients/imports/" + QUEUED_IMPORT.id()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /clients/imports/{id} should return 400 Bad Request for invalid id")
+    void getClientsImportsIdShouldReturn400BadRequestForInvalidId() throws Exception {
+        mvc.perform(get("/clients/imports/1"))
+                .andExpect(status().isBadRequest());
+    }
+}
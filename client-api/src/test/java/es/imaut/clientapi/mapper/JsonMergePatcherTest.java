@@ -0,0 +1,169 @@
+package es.imaut.clientapi.mapper;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import es.imaut.clientapi.config.ObjectMapperConfig;
+import es.imaut.clientapi.converter.StreamingMergePatch;
+import jakarta.persistence.Id;
+import lombok.Data;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.json.Json.*;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class JsonMergePatcherTest {
+    private static final JsonMergePatcher patcher = new JsonMergePatcher(new ObjectMapperConfig().objectMapper());
+
+    @Test
+    @DisplayName("Apply should return the patched instance")
+    void applyShouldReturnThePatchedInstance() {
+        var bean = new TestBean();
+        assertThat(patcher.apply(createMergePatch(createObjectBuilder().build()), bean))
+                .isSameAs(bean);
+    }
+
+    @Test
+    @DisplayName("Apply should set touched properties only")
+    void applyShouldSetTouchedPropertiesOnly() {
+        var bean = new TestBean();
+        bean.setText("Text");
+        bean.setCount(1L);
+        var patch = createMergePatch(createObjectBuilder()
+                .add("count", 2L)
+                .build());
+        assertThat(patcher.apply(patch, bean))
+                .hasFieldOrPropertyWithValue("text", "Text")
+                .hasFieldOrPropertyWithValue("count", 2L);
+    }
+
+    @Test
+    @DisplayName("Apply should set null values")
+    void applyShouldSetNullValues() {
+        var bean = new TestBean();
+        bean.setText("Text");
+        var patch = createMergePatch(createObjectBuilder()
+                .addNull("text")
+                .build());
+        assertThat(patcher.apply(patch, bean))
+                .hasFieldOrPropertyWithValue("text", null);
+    }
+
+    @Test
+    @DisplayName("Apply should convert numbers to property type")
+    void applyShouldConvertNumbersToPropertyType() {
+        var patch = createMergePatch(createObjectBuilder()
+                .add("amount", new BigDecimal("12.5000"))
+                .add("count", 3)
+                .add("ratio", 0.5)
+                .build());
+        assertThat(patcher.apply(patch, new TestBean()))
+                .hasFieldOrPropertyWithValue("amount", new BigDecimal("12.5000"))
+                .hasFieldOrPropertyWithValue("count", 3L)
+                .hasFieldOrPropertyWithValue("ratio", 0.5);
+    }
+
+    @Test
+    @DisplayName("Apply should convert other values with object mapper")
+    void applyShouldConvertOtherValuesWithObjectMapper() {
+        var patch = createMergePatch(createObjectBuilder()
+                .add("amount", "7.25")
+                .add("tags", createArrayBuilder().add("a").add("b"))
+                .build());
+        assertThat(patcher.apply(patch, new TestBean()))
+                .hasFieldOrPropertyWithValue("amount", new BigDecimal("7.25"))
+                .hasFieldOrPropertyWithValue("tags", List.of("a", "b"));
+    }
+
+    @Test
+    @DisplayName("Apply should merge nested objects")
+    void applyShouldMergeNestedObjects() {
+        var bean = new TestBean();
+        var nested = new TestBean();
+        nested.setText("Nested");
+        nested.setCount(1L);
+        bean.setNested(nested);
+        var patch = createMergePatch(createObjectBuilder()
+                .add("nested", createObjectBuilder().add("count", 2L))
+                .build());
+        assertThat(patcher.apply(patch, bean).getNested())
+                .isSameAs(nested)
+                .hasFieldOrPropertyWithValue("text", "Nested")
+                .hasFieldOrPropertyWithValue("count", 2L);
+    }
+
+    @Test
+    @DisplayName("Apply should create missing nested objects")
+    void applyShouldCreateMissingNestedObjects() {
+        var patch = createMergePatch(createObjectBuilder()
+                .add("nested", createObjectBuilder().add("text", "Nested"))
+                .build());
+        assertThat(patcher.apply(patch, new TestBean()).getNested())
+                .hasFieldOrPropertyWithValue("text", "Nested");
+    }
+
+    @Test
+    @DisplayName("Apply should ignore unknown, ignored and id properties")
+    void applyShouldIgnoreUnknownIgnoredAndIdProperties() {
+        var bean = new TestBean();
+        bean.setId(1L);
+        var patch = createMergePatch(createObjectBuilder()
+                .add("id", 2L)
+                .add("hidden", "Hidden")
+                .add("unknown", "Unknown")
+                .build());
+        assertThat(patcher.apply(patch, bean))
+                .hasFieldOrPropertyWithValue("id", 1L)
+                .hasFieldOrPropertyWithValue("hidden", null);
+    }
+
+    @Test
+    @DisplayName("Apply should set values from streaming merge patch")
+    void applyShouldSetValuesFromStreamingMergePatch() {
+        var bean = new TestBean();
+        var nested = new TestBean();
+        nested.setCount(1L);
+        bean.setNested(nested);
+        bean.setText("Text");
+        var fields = new LinkedHashMap<String, Object>();
+        fields.put("text", null);
+        fields.put("count", 5);
+        fields.put("amount", new BigDecimal("1.25"));
+        fields.put("tags", List.of("a"));
+        fields.put("nested", Map.of("text", "Nested"));
+        assertThat(patcher.apply(new StreamingMergePatch(fields), bean))
+                .hasFieldOrPropertyWithValue("text", null)
+                .hasFieldOrPropertyWithValue("count", 5L)
+                .hasFieldOrPropertyWithValue("amount", new BigDecimal("1.25"))
+                .hasFieldOrPropertyWithValue("tags", List.of("a"))
+                .hasFieldOrPropertyWithValue("nested.text", "Nested")
+                .hasFieldOrPropertyWithValue("nested.count", 1L);
+    }
+
+    @Test
+    @DisplayName("Apply should throw illegal argument exception for non object patch")
+    void applyShouldThrowIllegalArgumentExceptionForNonObjectPatch() {
+        var patch = createMergePatch(createArrayBuilder().build());
+        assertThatThrownBy(() -> patcher.apply(patch, new TestBean()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Data
+    private static final class TestBean {
+        @Id
+        private Long id;
+        private String text;
+        private Long count;
+        private BigDecimal amount;
+        private double ratio;
+        private List<String> tags;
+        private TestBean nested;
+        @JsonIgnore
+        private String hidden;
+    }
+}
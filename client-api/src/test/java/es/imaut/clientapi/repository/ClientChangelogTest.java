@@ -0,0 +1,73 @@
+package es.imaut.clientapi.repository;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class ClientChangelogTest {
+    private static final String BEFORE_UNIQUE_VAT_NUMBER = "db/changelog/db.changelog-before-007.yaml";
+    private static final String MASTER = "db/changelog/db.changelog-master.yaml";
+    private static final String INSERT_CLIENT = "insert into client (id, name, vat_number, street_address, postcode, city, country) "
+            + "values (%d, 'Client', '%s', '1 Main street', 'PC01', 'Capital', 'Abroad')";
+    private final String url = "jdbc:h2:mem:client-api-changelog-" + UUID.randomUUID();
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Keeps the in-memory database open between updates, each of which runs on its own connection.
+        connection = DriverManager.getConnection(url, "sa", "sa");
+        update(BEFORE_UNIQUE_VAT_NUMBER);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Making VAT number unique should halt when clients share a VAT number")
+    void makingVatNumberUniqueShouldHaltWhenClientsShareAVatNumber() throws Exception {
+        insertClient(1, "1234567890");
+        insertClient(2, "1234567890");
+        assertThatThrownBy(() -> update(MASTER))
+                .isInstanceOf(LiquibaseException.class)
+                .hasMessageContaining("Clients share a VAT number");
+    }
+
+    @Test
+    @DisplayName("Making VAT number unique should apply when VAT numbers are distinct")
+    void makingVatNumberUniqueShouldApplyWhenVatNumbersAreDistinct() throws Exception {
+        insertClient(1, "1234567890");
+        insertClient(2, "2345678901");
+        update(MASTER);
+        assertThatThrownBy(() -> insertClient(3, "1234567890"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("IDX_CLIENT_VAT_NUMBER");
+    }
+
+    private void update(String changelog) throws Exception {
+        try (var liquibase = new Liquibase(changelog, new ClassLoaderResourceAccessor(),
+                new JdbcConnection(DriverManager.getConnection(url, "sa", "sa")))) {
+            liquibase.update(new Contexts());
+        }
+    }
+
+    private void insertClient(long id, String vatNumber) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate(INSERT_CLIENT.formatted(id, vatNumber));
+        }
+    }
+}
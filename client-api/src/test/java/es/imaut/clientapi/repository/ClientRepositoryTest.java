@@ -1,8 +1,12 @@
 package es.imaut.clientapi.repository;
 
 import es.imaut.clientapi.RandomClientExtension;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
+import es.imaut.clientapi.exception.InvalidCursorException;
 import es.imaut.clientapi.model.Client;
 import io.github.glytching.junit.extension.random.Random;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +16,17 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
+import static es.imaut.clientapi.domain.ClientSearchCursor.FIRST;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.springframework.data.domain.PageRequest.ofSize;
 import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
 
 @DataJpaTest
@@ -26,6 +38,8 @@ class ClientRepositoryTest {
     private TestEntityManager entityManager;
     @Autowired
     private ClientRepository repository;
+    @Autowired
+    private DataSource dataSource;
 
     @Test
     @DisplayName("Find all should return empty list")
@@ -44,4 +58,238 @@ class ClientRepositoryTest {
                 .asList().hasSameSizeAs(clients)
                 .containsExactlyInAnyOrderElementsOf(clients);
     }
+
+    @Test
+    @DisplayName("Find by id greater than should return next page of clients")
+    void findByIdGreaterThanShouldReturnNextPageOfClients(@Random(type = Client.class) List<Client> clients) {
+        clients.stream().peek(c -> c.setId(null)).forEach(entityManager::persist);
+        var sorted = clients.stream().sorted(Comparator.comparing(Client::getId)).toList();
+        var first = repository.findByIdGreaterThanOrderByIdAsc(0L, ofSize(2));
+        var second = repository.findByIdGreaterThanOrderByIdAsc(first.getContent().get(1).getId(), ofSize(2));
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).asList().containsExactlyElementsOf(sorted.subList(0, 2));
+        assertThat(second.getContent()).asList().containsExactlyElementsOf(sorted.subList(2, 4));
+    }
+
+    @Test
+    @DisplayName("Patch should update only given columns and bump version in a single statement")
+    void patchShouldUpdateOnlyGivenColumnsAndBumpVersionInASingleStatement(@Random Client client) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        client.setId(null);
+        var id = entityManager.persistFlushFind(client).getId();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.patch(id, Map.of("name", "Patched", "city", "Madrid"));
+        assertThat(result).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        var patched = entityManager.find(Client.class, id);
+        assertThat(patched.getName()).isEqualTo("Patched");
+        assertThat(patched.getCity()).isEqualTo("Madrid");
+        assertThat(patched.getVatNumber()).isEqualTo(client.getVatNumber());
+        assertThat(patched.getVersion()).isEqualTo(client.getVersion() + 1);
+    }
+
+    @Test
+    @DisplayName("Patch should return zero when client does not exist")
+    void patchShouldReturnZeroWhenClientDoesNotExist() {
+        var result = repository.patch(1L, Map.of("name", "Patched"));
+        assertThat(result).isZero();
+    }
+
+    @Test
+    @DisplayName("Stream all ids should return the id of every client")
+    void streamAllIdsShouldReturnTheIdOfEveryClient(@Random(type = Client.class) List<Client> clients) {
+        clients.stream().peek(c -> c.setId(null)).forEach(entityManager::persist);
+        try (var ids = repository.streamAllIds()) {
+            assertThat(ids.toList()).asList()
+                    .containsExactlyInAnyOrderElementsOf(clients.stream().map(Client::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Purge by id should delete client in a single statement")
+    void purgeByIdShouldDeleteClientInASingleStatement(@Random Client client) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        client.setId(null);
+        var id = entityManager.persistFlushFind(client).getId();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.purgeById(id);
+        assertThat(result).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(entityManager.find(Client.class, id)).isNull();
+    }
+
+    @Test
+    @DisplayName("Purge by id should return zero when client does not exist")
+    void purgeByIdShouldReturnZeroWhenClientDoesNotExist() {
+        var result = repository.purgeById(1L);
+        assertThat(result).isZero();
+    }
+
+    @Test
+    @DisplayName("Upsert by VAT number should insert new clients and update stored ones")
+    void upsertByVatNumberShouldInsertNewClientsAndUpdateStoredOnes(@Random Client stored, @Random Client changed,
+                                                                    @Random Client added) {
+        stored.setId(null);
+        var id = entityManager.persistFlushFind(stored).getId();
+        entityManager.clear();
+        changed.setId(null);
+        changed.setVatNumber(stored.getVatNumber());
+        added.setId(null);
+        var result = repository.upsertByVatNumber(List.of(changed, added));
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(result).asList().containsExactly(added.getId());
+        var updated = entityManager.find(Client.class, id);
+        assertThat(updated.getName()).isEqualTo(changed.getName());
+        assertThat(updated.getCity()).isEqualTo(changed.getCity());
+        assertThat(updated.getVersion()).isEqualTo(stored.getVersion() + 1);
+        assertThat(entityManager.find(Client.class, added.getId()).getVatNumber()).isEqualTo(added.getVatNumber());
+    }
+
+    @Test
+    @DisplayName("Upsert by VAT number should write a repeated VAT number once with its last values")
+    void upsertByVatNumberShouldWriteARepeatedVatNumberOnceWithItsLastValues(@Random Client first, @Random Client last) {
+        first.setId(null);
+        last.setId(null);
+        last.setVatNumber(first.getVatNumber());
+        var result = repository.upsertByVatNumber(List.of(first, last));
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(result).asList().containsExactly(first.getId());
+        assertThat(repository.findAll()).asList().hasSize(1);
+        assertThat(entityManager.find(Client.class, first.getId()).getName()).isEqualTo(last.getName());
+    }
+
+    @Test
+    @DisplayName("Upsert by VAT number should not write unchanged clients")
+    void upsertByVatNumberShouldNotWriteUnchangedClients(@Random Client stored) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        stored.setId(null);
+        entityManager.persistFlushFind(stored);
+        entityManager.clear();
+        var same = Client.builder()
+                .name(stored.getName())
+                .vatNumber(stored.getVatNumber())
+                .streetAddress(stored.getStreetAddress())
+                .postcode(stored.getPostcode())
+                .city(stored.getCity())
+                .country(stored.getCountry())
+                .build();
+        statistics.clear();
+        var result = repository.upsertByVatNumber(List.of(same));
+        entityManager.flush();
+        assertThat(result).asList().isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Search should return clients matching every given filter ordered by id")
+    void searchShouldReturnClientsMatchingEveryGivenFilterOrderedById(@Random(type = Client.class) List<Client> clients) {
+        clients.forEach(c -> {
+            c.setId(null);
+            c.setCountry("Spain");
+        });
+        clients.get(0).setName("Acme Iberia");
+        clients.get(0).setCity("Madrid");
+        clients.get(1).setName("Acme Levante");
+        clients.get(1).setCity("Valencia");
+        clients.get(2).setName("Acme Madrid");
+        clients.get(2).setCity("Madrid");
+        clients.get(3).setName("Bcme_Madrid");
+        clients.get(3).setCity("Madrid");
+        clients.forEach(entityManager::persist);
+        var search = new ClientSearchRequest();
+        search.setName("Acme");
+        search.setCountry("Spain");
+        search.setCity("Madrid");
+        var result = repository.search(search, FIRST, 10);
+        assertThat(result.hasNext()).isFalse();
+        assertThat(result.getContent()).asList().containsExactly(clients.get(0), clients.get(2));
+    }
+
+    @Test
+    @DisplayName("Search should match name prefix literally")
+    void searchShouldMatchNamePrefixLiterally(@Random(type = Client.class) List<Client> clients) {
+        clients.forEach(c -> c.setId(null));
+        clients.get(0).setName("50% Off Ltd");
+        clients.get(1).setName("500 Club");
+        clients.forEach(entityManager::persist);
+        var search = new ClientSearchRequest();
+        search.setName("50%");
+        var result = repository.search(search, FIRST, 10);
+        assertThat(result.getContent()).asList().containsExactly(clients.get(0));
+    }
+
+    @Test
+    @DisplayName("Search by country should return next page from cursor")
+    void searchByCountryShouldReturnNextPageFromCursor(@Random(type = Client.class) List<Client> clients) {
+        clients.forEach(c -> {
+            c.setId(null);
+            c.setCountry("Spain");
+        });
+        clients.forEach(entityManager::persist);
+        var search = new ClientSearchRequest();
+        search.setCountry("Spain");
+        var first = repository.search(search, FIRST, 2);
+        var second = repository.search(search, new ClientSearchCursor(null, first.getContent().get(1).getId()), clients.size());
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).asList().containsExactlyElementsOf(clients.subList(0, 2));
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent()).asList().containsExactlyElementsOf(clients.subList(2, clients.size()));
+    }
+
+    @Test
+    @DisplayName("Search by name should return next page from name and id cursor")
+    void searchByNameShouldReturnNextPageFromNameAndIdCursor(@Random(type = Client.class) List<Client> clients) {
+        clients.forEach(c -> c.setId(null));
+        clients.get(0).setName("Acme B");
+        clients.get(1).setName("Acme A");
+        clients.get(2).setName("Acme C");
+        clients.get(3).setName("Acme A");
+        clients.forEach(entityManager::persist);
+        var search = new ClientSearchRequest();
+        search.setName("Acme");
+        var first = repository.search(search, FIRST, 2);
+        var last = first.getContent().get(1);
+        var second = repository.search(search, new ClientSearchCursor(last.getName(), last.getId()), 10);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).asList().containsExactly(clients.get(1), clients.get(3));
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent()).asList().containsExactly(clients.get(0), clients.get(2));
+    }
+
+    @Test
+    @DisplayName("Search by name should throw invalid cursor exception for cursor without name")
+    void searchByNameShouldThrowInvalidCursorExceptionForCursorWithoutName() {
+        var search = new ClientSearchRequest();
+        search.setName("Acme");
+        assertThatThrownBy(() -> repository.search(search, new ClientSearchCursor(null, 5L), 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    @DisplayName("Search indexes should end with the id pages are ordered by")
+    void searchIndexesShouldEndWithTheIdPagesAreOrderedBy() throws SQLException {
+        assertThat(indexColumns("idx_client_name")).asList().containsExactly("name", "id");
+        assertThat(indexColumns("idx_client_country_id")).asList().containsExactly("country", "id");
+    }
+
+    private List<String> indexColumns(String index) throws SQLException {
+        var columns = new ArrayList<String>();
+        try (var connection = dataSource.getConnection();
+             var rows = connection.getMetaData().getIndexInfo(null, null, "CLIENT", false, false)) {
+            while (rows.next()) {
+                if (index.equalsIgnoreCase(rows.getString("INDEX_NAME"))) {
+                    columns.add(rows.getString("COLUMN_NAME").toLowerCase());
+                }
+            }
+        }
+        return columns;
+    }
 }
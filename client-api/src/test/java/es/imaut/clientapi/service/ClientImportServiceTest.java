@@ -0,0 +1,213 @@
+package es.imaut.clientapi.service;
+
+import es.imaut.clientapi.domain.ClientImportResponse.ClientImportError;
+import es.imaut.clientapi.exception.ClientImportNotFoundException;
+import es.imaut.clientapi.exception.InvalidClientImportException;
+import es.imaut.clientapi.mapper.ClientMapperImpl;
+import es.imaut.clientapi.model.Client;
+import es.imaut.clientapi.repository.ClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.COMPLETED;
+import static es.imaut.clientapi.domain.ClientImportResponse.Status.FAILED;
+import static jakarta.validation.Validation.buildDefaultValidatorFactory;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientImportServiceTest {
+    private static final String HEADER = "name,vatNumber,streetAddress,postcode,city,country\n";
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdFilter idFilter = new IdFilter("client", 0.01, 0, meterRegistry);
+    private final AtomicLong ids = new AtomicLong();
+    @Mock
+    private ClientRepository repository;
+    private ClientImportService service;
+
+    @BeforeEach
+    void setUp() {
+        idFilter.rebuild(1, () -> Stream.of(Long.MAX_VALUE));
+        service = new ClientImportService(repository, new ClientMapperImpl(), buildDefaultValidatorFactory().getValidator(),
+                idFilter, Runnable::run, 2, 3, Duration.ofHours(1), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Start should upsert rows in batches")
+    void startShouldUpsertRowsInBatches() {
+        insertingAll();
+        var result = service.start(csv(HEADER + row("1") + row("2") + row("3")));
+        assertThat(result.status()).isEqualTo(COMPLETED);
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(result.inserted()).isEqualTo(3);
+        verify(repository).upsertByVatNumber(argThat(clients -> clients.size() == 2
+                && clients.get(0).getVatNumber().equals("VAT1") && clients.get(1).getVatNumber().equals("VAT2")));
+        verify(repository).upsertByVatNumber(argThat(clients -> clients.size() == 1
+                && clients.get(0).getVatNumber().equals("VAT3")));
+    }
+
+    @Test
+    @DisplayName("Start should count rows not inserted as updated")
+    void startShouldCountRowsNotInsertedAsUpdated() {
+        when(repository.upsertByVatNumber(any())).thenReturn(List.of(1L));
+        var result = service.start(csv(HEADER + row("1") + row("2")));
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.updated()).isEqualTo(1);
+        assertThat(meterRegistry.get("client.import.rows").tag("result", "updated").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Start should add inserted ids to filter")
+    void startShouldAddInsertedIdsToFilter() {
+        when(repository.upsertByVatNumber(any())).thenReturn(List.of(100_000L));
+        service.start(csv(HEADER + row("1")));
+        assertThat(idFilter.mightContain(100_000L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Start should read columns in any order and ignore unknown ones")
+    void startShouldReadColumnsInAnyOrderAndIgnoreUnknownOnes() {
+        insertingAll();
+        var result = service.start(csv("""
+                country,city,notes,postcode,streetAddress,vatNumber,name
+                Spain, Madrid ,Moved in 2020,28013,1 Gran Via,B12345678,Acme Iberia
+                """));
+        assertThat(result.inserted()).isEqualTo(1);
+        verify(repository).upsertByVatNumber(argThat(clients -> clients.get(0).getCity().equals("Madrid")
+                && clients.get(0).getVatNumber().equals("B12345678")));
+    }
+
+    @Test
+    @DisplayName("Start should reject invalid rows and import the rest")
+    void startShouldRejectInvalidRowsAndImportTheRest() {
+        insertingAll();
+        var result = service.start(csv(HEADER + row("1") + "Client 2,,2 Main street,PC02,Town,Abroad\n" + row("3")));
+        assertThat(result.status()).isEqualTo(COMPLETED);
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(result.errors()).asList()
+                .containsExactly(new ClientImportError(2, "vatNumber", "must not be blank"));
+    }
+
+    @Test
+    @DisplayName("Start should reject rows that cannot be read and import the rest")
+    void startShouldRejectRowsThatCannotBeReadAndImportTheRest() {
+        insertingAll();
+        var result = service.start(csv(HEADER + row("1") + "Client 2,VAT2,2 Main street,PC02,Town,Abroad,extra\n" + row("3")));
+        assertThat(result.status()).isEqualTo(COMPLETED);
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(result.errors().get(0).row()).isEqualTo(2);
+        assertThat(result.errors().get(0).field()).isNull();
+    }
+
+    @Test
+    @DisplayName("Start should report errors up to the maximum and count every rejected row")
+    void startShouldReportErrorsUpToTheMaximumAndCountEveryRejectedRow() {
+        var result = service.start(csv(HEADER + ",,,,,\n".repeat(5)));
+        assertThat(result.rejected()).isEqualTo(5);
+        assertThat(result.errors()).asList().hasSize(3);
+        verify(repository, never()).upsertByVatNumber(any());
+    }
+
+    @Test
+    @DisplayName("Start should fail on malformed CSV and keep batches written before")
+    void startShouldFailOnMalformedCsvAndKeepBatchesWrittenBefore() {
+        insertingAll();
+        var result = service.start(csv(HEADER + row("1") + row("2") + "\"Client 3,VAT3\n"));
+        assertThat(result.status()).isEqualTo(FAILED);
+        assertThat(result.failure()).startsWith("Unreadable CSV at row 3");
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.completedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Start should retry a conflicting batch row by row and reject rows that still conflict")
+    void startShouldRetryAConflictingBatchRowByRowAndRejectRowsThatStillConflict() {
+        when(repository.upsertByVatNumber(any())).thenAnswer(invocation -> {
+            List<Client> clients = invocation.getArgument(0);
+            if (clients.size() > 1 || clients.get(0).getVatNumber().equals("VAT2")) {
+                throw ClientServiceTest.integrityViolation("PUBLIC.IDX_CLIENT_VAT_NUMBER");
+            }
+            return List.of(ids.incrementAndGet());
+        });
+        var result = service.start(csv(HEADER + row("1") + row("2")));
+        assertThat(result.status()).isEqualTo(COMPLETED);
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(result.errors()).asList()
+                .containsExactly(new ClientImportError(2, "vatNumber", "conflicts with another client"));
+    }
+
+    @Test
+    @DisplayName("Start should fail on integrity violations of other constraints")
+    void startShouldFailOnIntegrityViolationsOfOtherConstraints() {
+        when(repository.upsertByVatNumber(any())).thenThrow(ClientServiceTest.integrityViolation("PUBLIC.PK_CLIENT"));
+        var result = service.start(csv(HEADER + row("1") + row("2")));
+        assertThat(result.status()).isEqualTo(FAILED);
+        assertThat(result.rejected()).isZero();
+        verify(repository, times(1)).upsertByVatNumber(any());
+    }
+
+    @Test
+    @DisplayName("Start should fail when writing fails")
+    void startShouldFailWhenWritingFails() {
+        when(repository.upsertByVatNumber(any())).thenThrow(new IllegalStateException("Database unavailable"));
+        var result = service.start(csv(HEADER + row("1")));
+        assertThat(result.status()).isEqualTo(FAILED);
+        assertThat(result.failure()).isEqualTo("Import stopped at row 1: Database unavailable");
+    }
+
+    @Test
+    @DisplayName("Start should throw invalid client import exception for empty file")
+    void startShouldThrowInvalidClientImportExceptionForEmptyFile() {
+        assertThatThrownBy(() -> service.start(csv("")))
+                .isInstanceOf(InvalidClientImportException.class);
+    }
+
+    @Test
+    @DisplayName("Find by id should return import progress")
+    void findByIdShouldReturnImportProgress() {
+        insertingAll();
+        var started = service.start(csv(HEADER + row("1")));
+        var result = service.findById(started.id());
+        assertThat(result.status()).isEqualTo(COMPLETED);
+        assertThat(result.inserted()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Find by id should throw client import not found exception")
+    void findByIdShouldThrowClientImportNotFoundException() {
+        assertThatThrownBy(() -> service.findById(UUID.randomUUID()))
+                .isInstanceOf(ClientImportNotFoundException.class);
+    }
+
+    private void insertingAll() {
+        when(repository.upsertByVatNumber(any())).thenAnswer(invocation -> invocation.<List<Client>>getArgument(0)
+                .stream().map(client -> ids.incrementAndGet()).toList());
+    }
+
+    private static String row(String n) {
+        return "Client %s,VAT%s,%s Main street,PC0%s,Town,Abroad\n".formatted(n, n, n, n);
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "clients.csv", "text/csv", content.getBytes(UTF_8));
+    }
+}
@@ -1,7 +1,11 @@
 package es.imaut.clientapi.service;
 
+import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.ClientSearchCursor;
+import es.imaut.clientapi.domain.ClientSearchRequest;
 import es.imaut.clientapi.domain.CreateClientRequest;
 import es.imaut.clientapi.exception.ClientNotFoundException;
+import es.imaut.clientapi.exception.DuplicateVatNumberException;
 import es.imaut.clientapi.mapper.ClientDetailsMapper;
 import es.imaut.clientapi.mapper.ClientDetailsMapperImpl;
 import es.imaut.clientapi.mapper.ClientMapper;
@@ -10,6 +14,9 @@ import es.imaut.clientapi.model.Client;
 import es.imaut.clientapi.repository.ClientRepository;
 import io.github.glytching.junit.extension.random.Random;
 import io.github.glytching.junit.extension.random.RandomBeansExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,18 +24,31 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.SliceImpl;
 
 import javax.json.JsonMergePatch;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static es.imaut.clientapi.domain.ClientSearchCursor.FIRST;
+import static jakarta.validation.Validation.buildDefaultValidatorFactory;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.data.domain.PageRequest.ofSize;
 
 @ExtendWith({ MockitoExtension.class, RandomBeansExtension.class })
 class ClientServiceTest {
@@ -38,30 +58,61 @@ class ClientServiceTest {
     private ClientMapper clientMapper = new ClientMapperImpl();
     @Spy
     private ClientDetailsMapper detailsMapper = new ClientDetailsMapperImpl();
+    @Spy
+    private Validator validator = buildDefaultValidatorFactory().getValidator();
+    @Spy
+    private SingleFlight<Long, ClientResponse> singleFlight = new SingleFlight<>("client", new SimpleMeterRegistry());
+    @Spy
+    private IdFilter idFilter = new IdFilter("client", 0.01, 0, new SimpleMeterRegistry());
     @InjectMocks
     private ClientService service;
 
     @Test
-    @DisplayName("Find all should call repository")
-    void findAllShouldCallRepository() {
-        service.findAll();
-        verify(repository).findAll();
+    @DisplayName("Find all should call repository with cursor and limit")
+    void findAllShouldCallRepositoryWithCursorAndLimit() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(new SliceImpl<>(List.of()));
+        service.findAll(5L, 10);
+        verify(repository).findByIdGreaterThanOrderByIdAsc(5L, ofSize(10));
     }
 
     @Test
-    @DisplayName("Find all should return empty list")
-    void findAllShouldReturnEmptyList() {
-        var result = service.findAll();
-        assertThat(result).isNotNull()
+    @DisplayName("Find all should return empty slice")
+    void findAllShouldReturnEmptySlice() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(new SliceImpl<>(List.of()));
+        var result = service.findAll(0L, 10);
+        assertThat(result.getContent()).isNotNull()
                 .asList().isEmpty();
     }
 
     @Test
-    @DisplayName("Find all should return list mapped from repository")
-    void findAllShouldReturnListMappedFromRepository(@Random(type = Client.class) List<Client> clients) {
-        when(repository.findAll()).thenReturn(clients);
-        var result = service.findAll();
-        assertThat(result).isNotNull()
+    @DisplayName("Find all should return slice mapped from repository")
+    void findAllShouldReturnSliceMappedFromRepository(@Random(type = Client.class) List<Client> clients) {
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any()))
+                .thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        var result = service.findAll(0L, clients.size());
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getContent()).isNotNull()
+                .asList().hasSameSizeAs(clients)
+                .usingRecursiveFieldByFieldElementComparator().isEqualTo(clients);
+    }
+
+    @Test
+    @DisplayName("Search should call repository with filters, cursor and limit")
+    void searchShouldCallRepositoryWithFiltersCursorAndLimit(@Random ClientSearchRequest search) {
+        var after = new ClientSearchCursor("Acme", 5L);
+        when(repository.search(any(), any(), anyInt())).thenReturn(new SliceImpl<>(List.of()));
+        service.search(search, after, 10);
+        verify(repository).search(search, after, 10);
+    }
+
+    @Test
+    @DisplayName("Search should return slice mapped from repository")
+    void searchShouldReturnSliceMappedFromRepository(@Random(type = Client.class) List<Client> clients) {
+        when(repository.search(any(), any(), anyInt()))
+                .thenReturn(new SliceImpl<>(clients, ofSize(clients.size()), true));
+        var result = service.search(new ClientSearchRequest(), FIRST, clients.size());
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getContent()).isNotNull()
                 .asList().hasSameSizeAs(clients)
                 .usingRecursiveFieldByFieldElementComparator().isEqualTo(clients);
     }
@@ -82,6 +133,34 @@ class ClientServiceTest {
                 .isInstanceOf(ClientNotFoundException.class);
     }
 
+    @Test
+    @DisplayName("Find by id should throw not found exception without repository for ids absent from filter")
+    void findByIdShouldThrowNotFoundExceptionWithoutRepositoryForIdsAbsentFromFilter() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        assertThatThrownBy(() -> service.findById(2L))
+                .isInstanceOf(ClientNotFoundException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Find by id should call repository for ids above the highest rebuilt id")
+    void findByIdShouldCallRepositoryForIdsAboveTheHighestRebuiltId(@Random Client client) {
+        idFilter.rebuild(1, () -> Stream.of(1L));
+        when(repository.findById(2L)).thenReturn(of(client));
+        service.findById(2L);
+        verify(repository).findById(2L);
+    }
+
+    @Test
+    @DisplayName("Find by id should record false positive when filtered id is not found")
+    void findByIdShouldRecordFalsePositiveWhenFilteredIdIsNotFound() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        when(repository.findById(1L)).thenReturn(empty());
+        assertThatThrownBy(() -> service.findById(1L))
+                .isInstanceOf(ClientNotFoundException.class);
+        verify(idFilter).recordLookup(false);
+    }
+
     @Test
     @DisplayName("Find by id should return client from repository")
     void findAllShouldReturnClientFromRepository(@Random Client client) {
@@ -90,16 +169,70 @@ class ClientServiceTest {
         assertThat(result).usingRecursiveComparison().isEqualTo(client);
     }
 
+    @Test
+    @DisplayName("Find by id should share one repository read between concurrent callers")
+    void findByIdShouldShareOneRepositoryReadBetweenConcurrentCallers(@Random Client client) throws Exception {
+        var release = new CountDownLatch(1);
+        when(repository.findById(client.getId())).thenAnswer(invocation -> {
+            release.await(5, SECONDS);
+            return of(client);
+        });
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = IntStream.range(0, 4).mapToObj(i -> executor.submit(() -> service.findById(client.getId()))).toList();
+            var deadline = System.nanoTime() + SECONDS.toNanos(5);
+            while (singleFlight.coalescedCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (var result : results) {
+                assertThat(result.get(5, SECONDS)).usingRecursiveComparison().isEqualTo(client);
+            }
+            verify(repository, times(1)).findById(client.getId());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Find version should return version from repository")
+    void findVersionShouldReturnVersionFromRepository() {
+        when(repository.findVersionById(1L)).thenReturn(of(3L));
+        assertThat(service.findVersion(1L)).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Find version should throw not found exception")
+    void findVersionShouldThrowNotFoundException() {
+        when(repository.findVersionById(1L)).thenReturn(empty());
+        assertThatThrownBy(() -> service.findVersion(1L))
+                .isInstanceOf(ClientNotFoundException.class);
+    }
+
     @Test
     @DisplayName("Create should call repository")
     void createShouldCallRepository(@Random CreateClientRequest request, @Random Client client) {
         client.setName(request.getName());
         when(clientMapper.from(request))
                 .thenReturn(client);
+        when(repository.save(client))
+                .thenReturn(client);
         service.create(request);
         verify(repository).save(argThat(c -> c.getName().equals(request.getName())));
     }
 
+    @Test
+    @DisplayName("Create should add created id to filter")
+    void createShouldAddCreatedIdToFilter(@Random CreateClientRequest request, @Random Client client) {
+        idFilter.rebuild(1, () -> Stream.of(Long.MAX_VALUE));
+        when(clientMapper.from(request))
+                .thenReturn(client);
+        when(repository.save(client))
+                .thenReturn(client);
+        service.create(request);
+        assertThat(idFilter.mightContain(client.getId())).isTrue();
+    }
+
     @Test
     @DisplayName("Create should return created client")
     void createShouldReturnCreatedClient(@Random CreateClientRequest request, @Random Client client) {
@@ -113,67 +246,142 @@ class ClientServiceTest {
     }
 
     @Test
-    @DisplayName("Update should call repository to find client by id")
-    void updateShouldCallRepositoryToFindClientById(@Random Client client) {
-        when(repository.findById(client.getId())).thenReturn(of(client));
-        when(repository.save(client)).thenReturn(client);
-        when(clientMapper.merge(any(JsonMergePatch.class), any(Client.class)))
+    @DisplayName("Create should throw duplicate VAT number exception")
+    void createShouldThrowDuplicateVatNumberException(@Random CreateClientRequest request, @Random Client client) {
+        when(clientMapper.from(request))
+                .thenReturn(client);
+        when(repository.save(client))
+                .thenThrow(integrityViolation("PUBLIC.IDX_CLIENT_VAT_NUMBER"));
+        assertThatThrownBy(() -> service.create(request))
+                .isInstanceOf(DuplicateVatNumberException.class);
+    }
+
+    @Test
+    @DisplayName("Create should rethrow integrity violations of other constraints")
+    void createShouldRethrowIntegrityViolationsOfOtherConstraints(@Random CreateClientRequest request, @Random Client client) {
+        var violation = integrityViolation("PUBLIC.PK_CLIENT");
+        when(clientMapper.from(request))
                 .thenReturn(client);
+        when(repository.save(client))
+                .thenThrow(violation);
+        assertThatThrownBy(() -> service.create(request))
+                .isSameAs(violation);
+    }
+
+    @Test
+    @DisplayName("Update should call repository to patch client")
+    void updateShouldCallRepositoryToPatchClient(@Random Client client) {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", client.getName()));
+        when(repository.patch(client.getId(), Map.of("name", client.getName()))).thenReturn(1);
+        when(repository.findById(client.getId())).thenReturn(of(client));
         service.update(client.getId(), createMergePatch(createObjectBuilder().build()));
-        verify(repository).findById(client.getId());
+        verify(repository).patch(client.getId(), Map.of("name", client.getName()));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Update should not call repository to patch client when patch is empty")
+    void updateShouldNotCallRepositoryToPatchClientWhenPatchIsEmpty(@Random Client client) {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of());
+        when(repository.findById(client.getId())).thenReturn(of(client));
+        service.update(client.getId(), createMergePatch(createObjectBuilder().build()));
+        verify(repository, never()).patch(anyLong(), any());
     }
 
     @Test
     @DisplayName("Update should throw client not found exception")
     void updateShouldThrowClientNotFoundException() {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", "name"));
+        when(repository.patch(1L, Map.of("name", "name"))).thenReturn(0);
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isInstanceOf(ClientNotFoundException.class);
+        verify(repository, never()).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Update should throw duplicate VAT number exception")
+    void updateShouldThrowDuplicateVatNumberException() {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("vatNumber", "B12345678"));
+        when(repository.patch(1L, Map.of("vatNumber", "B12345678")))
+                .thenThrow(integrityViolation("PUBLIC.IDX_CLIENT_VAT_NUMBER"));
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isInstanceOf(DuplicateVatNumberException.class);
+    }
+
+    @Test
+    @DisplayName("Update should rethrow integrity violations of other constraints")
+    void updateShouldRethrowIntegrityViolationsOfOtherConstraints() {
+        var violation = integrityViolation("PUBLIC.CONSTRAINT_NAME_NOT_NULL");
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", "Renamed"));
+        when(repository.patch(1L, Map.of("name", "Renamed")))
+                .thenThrow(violation);
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isSameAs(violation);
+    }
+
+    @Test
+    @DisplayName("Update should throw client not found exception when patch is empty")
+    void updateShouldThrowClientNotFoundExceptionWhenPatchIsEmpty() {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of());
         when(repository.findById(1L)).thenReturn(empty());
         assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
                 .isInstanceOf(ClientNotFoundException.class);
     }
 
     @Test
-    @DisplayName("Update should call repository to save client")
-    void updateShouldCallRepositoryToSaveClient(@Random Client client) {
-        when(repository.findById(client.getId())).thenReturn(of(client));
-        when(repository.save(client)).thenReturn(client);
-        when(clientMapper.merge(any(JsonMergePatch.class), any(Client.class)))
-                .thenReturn(client);
-        service.update(client.getId(), createMergePatch(createObjectBuilder().build()));
-        verify(repository).save(client);
+    @DisplayName("Update should throw constraint violation exception before patching")
+    void updateShouldThrowConstraintViolationExceptionBeforePatching() {
+        var changes = new HashMap<String, Object>();
+        changes.put("name", " ");
+        changes.put("city", null);
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(changes);
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isInstanceOf(ConstraintViolationException.class)
+                .extracting(e -> ((ConstraintViolationException) e).getConstraintViolations().size())
+                .isEqualTo(2);
+        verify(repository, never()).patch(anyLong(), any());
     }
 
     @Test
     @DisplayName("Update should return updated client")
-    void updateShouldReturnUpdatedClient(@Random Client client, @Random Client updated) {
-        updated.setId(client.getId());
-        when(repository.findById(client.getId())).thenReturn(of(client));
-        when(repository.save(updated)).thenReturn(updated);
-        when(clientMapper.merge(any(JsonMergePatch.class), eq(client)))
-                .thenReturn(updated);
-        var result = service.update(client.getId(), createMergePatch(createObjectBuilder().build()));
+    void updateShouldReturnUpdatedClient(@Random Client updated) {
+        when(clientMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", updated.getName()));
+        when(repository.patch(updated.getId(), Map.of("name", updated.getName()))).thenReturn(1);
+        when(repository.findById(updated.getId())).thenReturn(of(updated));
+        var result = service.update(updated.getId(), createMergePatch(createObjectBuilder().build()));
         assertThat(result).usingRecursiveComparison().isEqualTo(updated);
     }
 
     @Test
-    @DisplayName("Delete should call repository to check if exists")
-    void deleteShouldNotCallRepositoryToCheckIfExists() {
+    @DisplayName("Delete should call repository to purge client")
+    void deleteShouldCallRepositoryToPurgeClient() {
         service.delete(1L);
-        verify(repository).existsById(1L);
+        verify(repository).purgeById(1L);
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldNotCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(false);
-        service.delete(1L);
-        verify(repository, times(0)).deleteById(1L);
+    @DisplayName("Rebuild id filter should build filter from repository ids")
+    void rebuildIdFilterShouldBuildFilterFromRepositoryIds() {
+        when(repository.count()).thenReturn(2L);
+        when(repository.streamAllIds()).thenReturn(Stream.of(1L, 2L));
+        service.rebuildIdFilter();
+        verify(idFilter).rebuild(eq(2L), any());
+        assertThat(idFilter.mightContain(1L)).isTrue();
+        assertThat(idFilter.mightContain(2L)).isTrue();
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(true);
+    @DisplayName("Delete should not load client")
+    void deleteShouldNotLoadClient() {
         service.delete(1L);
-        verify(repository).deleteById(1L);
+        verify(repository, never()).existsById(1L);
+        verify(repository, never()).findById(1L);
+        verify(repository, never()).deleteById(1L);
+    }
+
+    static DataIntegrityViolationException integrityViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new org.hibernate.exception.ConstraintViolationException("could not execute statement", new SQLException(),
+                        constraintName));
     }
 }
@@ -0,0 +1,211 @@
+package es.imaut.clientapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.imaut.clientapi.domain.ClientResponse;
+import es.imaut.clientapi.domain.CreateClientRequest;
+import es.imaut.clientapi.domain.IdempotentResponse;
+import es.imaut.clientapi.exception.IdempotencyKeyInProgressException;
+import es.imaut.clientapi.exception.IdempotencyKeyMismatchException;
+import es.imaut.clientapi.exception.IdempotencyKeyOutcomeUnknownException;
+import es.imaut.clientapi.repository.IdempotencyRecordRepository;
+import io.github.glytching.junit.extension.random.Random;
+import io.github.glytching.junit.extension.random.RandomBeansExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({ MockitoExtension.class, RandomBeansExtension.class })
+class IdempotencyServiceTest {
+    private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final AtomicInteger creates = new AtomicInteger();
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Execute should replay the first response for a retry")
+    void executeShouldReplayTheFirstResponseForARetry(@Random CreateClientRequest request, @Random ClientResponse response) {
+        var service = inMemory();
+        var first = service.execute("key", request, ClientResponse.class, () -> create(response));
+        var retry = service.execute("key", request, ClientResponse.class, () -> create(response));
+        assertThat(retry).isSameAs(first);
+        assertThat(creates.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("idempotency.requests").tag("result", "replayed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Execute should reject a key reused for a different request")
+    void executeShouldRejectAKeyReusedForADifferentRequest(@Random CreateClientRequest request, @Random CreateClientRequest other,
+                                                           @Random ClientResponse response) {
+        var service = inMemory();
+        service.execute("key", request, ClientResponse.class, () -> create(response));
+        assertThatThrownBy(() -> service.execute("key", other, ClientResponse.class, () -> create(response)))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+        assertThat(creates.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Execute should make a concurrent retry wait for the first request")
+    void executeShouldMakeAConcurrentRetryWaitForTheFirstRequest(@Random CreateClientRequest request, @Random ClientResponse response) throws Exception {
+        var service = inMemory();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var first = executor.submit(() -> service.execute("key", request, ClientResponse.class, () -> {
+            started.countDown();
+            await(release);
+            return create(response);
+        }));
+        started.await(5, SECONDS);
+        var retry = executor.submit(() -> service.execute("key", request, ClientResponse.class, () -> create(response)));
+        release.countDown();
+        assertThat(first.get(5, SECONDS)).isSameAs(response);
+        assertThat(retry.get(5, SECONDS)).isSameAs(response);
+        assertThat(creates.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Execute should give up waiting for a concurrent first request")
+    void executeShouldGiveUpWaitingForAConcurrentFirstRequest(@Random CreateClientRequest request, @Random ClientResponse response) throws Exception {
+        var service = new IdempotencyService(100, TIME_TO_LIVE, null, Duration.ofMillis(100), objectMapper, meterRegistry);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var first = executor.submit(() -> service.execute("key", request, ClientResponse.class, () -> {
+            started.countDown();
+            await(release);
+            return create(response);
+        }));
+        started.await(5, SECONDS);
+        assertThatThrownBy(() -> service.execute("key", request, ClientResponse.class, () -> create(response)))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        release.countDown();
+        assertThat(first.get(5, SECONDS)).isSameAs(response);
+        assertThat(creates.get()).isOne();
+    }
+
+    @Test
+    @DisplayName("Execute should run again after a failed request")
+    void executeShouldRunAgainAfterAFailedRequest(@Random CreateClientRequest request, @Random ClientResponse response) {
+        var service = inMemory();
+        assertThatThrownBy(() -> service.execute("key", request, ClientResponse.class, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(service.execute("key", request, ClientResponse.class, () -> create(response))).isSameAs(response);
+    }
+
+    @Test
+    @DisplayName("Execute should claim the key in the table and store the response")
+    void executeShouldClaimTheKeyInTheTableAndStoreTheResponse(@Random CreateClientRequest request, @Random ClientResponse response) throws Exception {
+        persistent().execute("key", request, ClientResponse.class, () -> create(response));
+        verify(repository).claim(eq("key"), anyString(), any());
+        verify(repository).complete("key", objectMapper.writeValueAsString(response));
+    }
+
+    @Test
+    @DisplayName("Execute should replay a response stored in the table")
+    void executeShouldReplayAResponseStoredInTheTable(@Random CreateClientRequest request, @Random ClientResponse response) throws Exception {
+        var json = objectMapper.writeValueAsString(response);
+        claimedElsewhere(json);
+        var result = persistent().execute("key", request, ClientResponse.class, () -> create(response));
+        assertThat(result).isEqualTo(response);
+        assertThat(creates.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Execute should give up waiting for a key still in progress elsewhere")
+    void executeShouldGiveUpWaitingForAKeyStillInProgressElsewhere(@Random CreateClientRequest request, @Random ClientResponse response) {
+        claimedElsewhere(null);
+        assertThatThrownBy(() -> persistent().execute("key", request, ClientResponse.class, () -> create(response)))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        assertThat(creates.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Execute should release the claim when the request fails")
+    void executeShouldReleaseTheClaimWhenTheRequestFails(@Random CreateClientRequest request) {
+        var service = persistent();
+        assertThatThrownBy(() -> service.execute("key", request, ClientResponse.class, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        verify(repository).release("key");
+        verify(repository, never()).complete(any(), any());
+    }
+
+    @Test
+    @DisplayName("Execute should keep the claim when the response cannot be stored")
+    void executeShouldKeepTheClaimWhenTheResponseCannotBeStored(@Random CreateClientRequest request, @Random ClientResponse response) {
+        when(repository.complete(eq("key"), anyString())).thenThrow(new QueryTimeoutException("timeout"));
+        var result = persistent().execute("key", request, ClientResponse.class, () -> create(response));
+        assertThat(result).isSameAs(response);
+        verify(repository, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Execute should answer a retry with a conflict when the response could not be stored")
+    void executeShouldAnswerARetryWithAConflictWhenTheResponseCouldNotBeStored(@Random CreateClientRequest request, @Random ClientResponse response) {
+        when(repository.complete(eq("key"), anyString())).thenThrow(new QueryTimeoutException("timeout"));
+        var service = persistent();
+        service.execute("key", request, ClientResponse.class, () -> create(response));
+        assertThatThrownBy(() -> service.execute("key", request, ClientResponse.class, () -> create(response)))
+                .isInstanceOf(IdempotencyKeyOutcomeUnknownException.class);
+        assertThat(creates.get()).isOne();
+    }
+
+    private IdempotencyService inMemory() {
+        return new IdempotencyService(100, TIME_TO_LIVE, null, Duration.ofSeconds(5), objectMapper, meterRegistry);
+    }
+
+    private IdempotencyService persistent() {
+        return new IdempotencyService(100, TIME_TO_LIVE, repository, Duration.ofMillis(100), objectMapper, meterRegistry);
+    }
+
+    private void claimedElsewhere(String response) {
+        var requestHash = new AtomicReference<String>();
+        when(repository.claim(eq("key"), anyString(), any())).thenAnswer(invocation -> {
+            requestHash.set(invocation.getArgument(1));
+            throw new DataIntegrityViolationException("claimed");
+        });
+        when(repository.findResponse("key"))
+                .thenAnswer(invocation -> of(new IdempotentResponse(requestHash.get(), response, Instant.now())));
+    }
+
+    private ClientResponse create(ClientResponse response) {
+        creates.incrementAndGet();
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
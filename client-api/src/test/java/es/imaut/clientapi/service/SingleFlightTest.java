@@ -0,0 +1,109 @@
+package es.imaut.clientapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Load should share one in-flight load between concurrent callers")
+    void loadShouldShareOneInFlightLoadBetweenConcurrentCallers() throws Exception {
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var results = IntStream.range(0, CALLERS).mapToObj(i -> executor.submit(() -> singleFlight.load(1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        }))).toList();
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(5, SECONDS)).isEqualTo("value");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("single.flight.requests").tag("name", "test").tag("result", "loaded").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("single.flight.requests").tag("name", "test").tag("result", "coalesced").counter().count())
+                .isEqualTo(CALLERS - 1.0);
+    }
+
+    @Test
+    @DisplayName("Load should share loader exception with coalesced callers")
+    void loadShouldShareLoaderExceptionWithCoalescedCallers() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var leader = executor.submit(() -> singleFlight.load(1L, () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        await(started);
+        var follower = executor.submit(() -> singleFlight.load(1L, () -> "unused"));
+        awaitCoalesced(1);
+        release.countDown();
+        assertThatThrownBy(() -> leader.get(5, SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Load should load again once previous load has completed")
+    void loadShouldLoadAgainOncePreviousLoadHasCompleted() {
+        var loads = new AtomicInteger();
+        singleFlight.load(1L, () -> String.valueOf(loads.incrementAndGet()));
+        assertThat(singleFlight.load(1L, () -> String.valueOf(loads.incrementAndGet()))).isEqualTo("2");
+        assertThat(singleFlight.coalescedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Load should not coalesce different keys")
+    void loadShouldNotCoalesceDifferentKeys() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = executor.submit(() -> singleFlight.load(1L, () -> {
+            await(release);
+            return "first";
+        }));
+        assertThat(singleFlight.load(2L, () -> "second")).isEqualTo("second");
+        release.countDown();
+        assertThat(first.get(5, SECONDS)).isEqualTo("first");
+        assertThat(singleFlight.coalescedCount()).isZero();
+    }
+
+    private void awaitCoalesced(long callers) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (singleFlight.coalescedCount() < callers && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(singleFlight.coalescedCount()).isEqualTo(callers);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,2 @@
+insert into client (id, name, vat_number, street_address, postcode, city, country) values
+  (1, 'Client 1', '1234567890', '1 Main street', 'PC01', 'Capital', 'Abroad');
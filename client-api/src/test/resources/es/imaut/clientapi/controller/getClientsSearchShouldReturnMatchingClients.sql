@@ -0,0 +1,6 @@
+insert into client (id, name, vat_number, street_address, postcode, city, country) values
+  (1, 'Acme Iberia', 'B12345678', '1 Gran Via', '28013', 'Madrid', 'Spain'),
+  (2, 'Acme Levante', 'B23456789', '2 Calle Colon', '46004', 'Valencia', 'Spain'),
+  (3, 'Acme Madrid', 'B34567890', '3 Calle Mayor', '28013', 'Madrid', 'Spain'),
+  (4, 'Acme Lisboa', 'PT123456789', '4 Rua Augusta', '1100-053', 'Lisboa', 'Portugal'),
+  (5, 'Globex Madrid', 'B45678901', '5 Paseo Castellana', '28046', 'Madrid', 'Spain');
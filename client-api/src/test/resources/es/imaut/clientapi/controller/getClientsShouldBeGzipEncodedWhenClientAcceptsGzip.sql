@@ -0,0 +1,3 @@
+insert into client (id, name, vat_number, street_address, postcode, city, country)
+  select x, concat('Client ', x), lpad(x, 10, '0'), concat(x, ' Main street'), concat('PC', x), 'Capital', 'Abroad'
+  from system_range(1, 50);
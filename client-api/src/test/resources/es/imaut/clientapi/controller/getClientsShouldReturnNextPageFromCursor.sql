@@ -0,0 +1,4 @@
+insert into client (id, name, vat_number, street_address, postcode, city, country) values
+  (1, 'Client 1', '1234567890', '1 Main street', 'PC01', 'Capital', 'Abroad'),
+  (2, 'Client 2', '2345678901', '2 Main street', 'PC02', 'Village', 'Inland'),
+  (3, 'Client 3', '3456789012', '3 Main street', 'PC03', 'Town', 'Overseas');
@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Compares throughput and p99 latency of Tomcat's platform-thread pool against virtual-thread request handling.
+#
+# Usage: virtual-threads.sh <client-api|product-api|account-api> [path]
+#
+# The module's MySQL container must be running (docker compose up -d in <module>/docker). Load is generated with
+# hey (https://github.com/rakyll/hey). DURATION, CONCURRENCY and PORT can be overridden from the environment.
+set -euo pipefail
+
+MODULE=${1:?usage: $0 <client-api|product-api|account-api> [path]}
+ENDPOINT=${2:-/${MODULE%-api}s}
+DURATION=${DURATION:-60s}
+CONCURRENCY=${CONCURRENCY:-1000}
+PORT=${PORT:-8080}
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+URL="http://localhost:${PORT}${ENDPOINT}"
+
+command -v hey >/dev/null || { echo "hey is required: go install github.com/rakyll/hey@latest" >&2; exit 1; }
+
+mvn -q -f "${ROOT}/${MODULE}/pom.xml" package -DskipTests
+
+run() {
+  local mode=$1 pid report
+  java -jar "${ROOT}/${MODULE}/target/app.jar" \
+    --server.port="${PORT}" --virtual-threads.enabled="${mode}" >"/tmp/${MODULE}-${mode}.log" 2>&1 &
+  pid=$!
+  until curl -sf "http://localhost:${PORT}/actuator/health" >/dev/null; do sleep 1; done
+  hey -z 10s -c "${CONCURRENCY}" "${URL}" >/dev/null
+  report=$(hey -z "${DURATION}" -c "${CONCURRENCY}" "${URL}")
+  printf '%-16s %12s %12s\n' "$([ "${mode}" = true ] && echo virtual || echo platform)" \
+    "$(awk '/Requests\/sec/ { print $2 }' <<<"${report}")" \
+    "$(awk '/ 99% in / { print $3 * 1000 }' <<<"${report}")"
+  kill "${pid}"
+  wait "${pid}" 2>/dev/null || true
+}
+
+printf '%-16s %12s %12s\n' "threads" "req/s" "p99 (ms)"
+run false
+run true
@@ -0,0 +1,35 @@
+package es.imaut.productapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.json.Json;
+import javax.json.JsonMergePatch;
+import java.io.StringReader;
+import java.util.function.Function;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS;
+
+/**
+ * Builds merge patches the way the converters do: plain values for the streaming reader, a JSON-P tree otherwise.
+ */
+final class MergePatches {
+    private static final ObjectMapper READER = new ObjectMapper().enable(USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private MergePatches() {
+    }
+
+    static JsonMergePatch streaming(String json, Function<Object, JsonMergePatch> factory) {
+        try {
+            return factory.apply(READER.readValue(json, Object.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static JsonMergePatch jsonP(String json) {
+        try (var reader = Json.createReader(new StringReader(json))) {
+            return Json.createMergePatch(reader.readValue());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package es.imaut.productapi.benchmark;
+
+import es.imaut.productapi.config.ObjectMapperConfig;
+import es.imaut.productapi.converter.StreamingMergePatch;
+import es.imaut.productapi.domain.ProductResponse;
+import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.mapper.ProductDetailsMapper;
+import es.imaut.productapi.mapper.ProductDetailsMapperImpl;
+import es.imaut.productapi.mapper.ProductMapper;
+import es.imaut.productapi.mapper.ProductMapperImpl;
+import es.imaut.productapi.mapper.JsonMergePatcher;
+import es.imaut.productapi.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.json.JsonMergePatch;
+import java.util.Map;
+import java.math.BigDecimal;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Throughput of the product mappers and of merge patches read as a JSON-P tree or by the streaming reader. Run with
+ * {@code mvn -Pjmh test-compile exec:exec} from the module; JMH options go in {@code jmh.args}, e.g.
+ * {@code -Djmh.args="ProductMapperBenchmark.changes -f 1 -prof gc"} to also report allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ProductMapperBenchmark {
+    @State(Scope.Benchmark)
+    public static class Mappers {
+        private AnnotationConfigApplicationContext context;
+        private ProductMapper productMapper;
+        private ProductDetailsMapper detailsMapper;
+        private CreateProductRequest request;
+        private Product product;
+
+        @Setup
+        public void setUp() {
+            context = new AnnotationConfigApplicationContext(
+                    ObjectMapperConfig.class, JsonMergePatcher.class, ProductMapperImpl.class, ProductDetailsMapperImpl.class);
+            productMapper = context.getBean(ProductMapper.class);
+            detailsMapper = context.getBean(ProductDetailsMapper.class);
+            request = new CreateProductRequest();
+            request.setName("IT Consultancy");
+            request.setDescription("Software development");
+            request.setNetPrice(new BigDecimal("350.00"));
+            request.setCurrency("EUR");
+            request.setUnit("day");
+            product = productMapper.from(request);
+            product.setId(1L);
+            product.setVersion(0L);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Patch {
+        private static final String SMALL = """
+                { "netPrice": 375.50 }
+                """;
+        private static final String LARGE = """
+                {
+                  "name": "Senior IT Consultancy",
+                  "description": "Software architecture and development",
+                  "netPrice": 475.50,
+                  "currency": "GBP",
+                  "unit": "hour"
+                }
+                """;
+
+        @Param({ "small", "large" })
+        private String size;
+        @Param({ "true", "false" })
+        private boolean streaming;
+        private JsonMergePatch patch;
+
+        @Setup
+        public void setUp() {
+            var json = "small".equals(size) ? SMALL : LARGE;
+            patch = streaming ? MergePatches.streaming(json, StreamingMergePatch::new) : MergePatches.jsonP(json);
+        }
+    }
+
+    @Benchmark
+    public Product createMapping(Mappers mappers) {
+        return mappers.productMapper.from(mappers.request);
+    }
+
+    @Benchmark
+    public ProductResponse detailsMapping(Mappers mappers) {
+        return mappers.detailsMapper.from(mappers.product);
+    }
+
+    @Benchmark
+    public Map<String, Object> changes(Mappers mappers, Patch patch) {
+        return mappers.productMapper.changes(patch.patch);
+    }
+}
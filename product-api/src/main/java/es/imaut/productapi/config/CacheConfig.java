@@ -0,0 +1,42 @@
+package es.imaut.productapi.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.imaut.productapi.service.CacheGenerations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Enables the in-process product and catalog caches. Size, TTL and statistics are set by
+ * {@code spring.cache.caffeine.spec}; the caches are declared in {@code spring.cache.cache-names} so their metrics
+ * are bound at startup. The catalog cache holds a single snapshot and expires after its own, shorter
+ * {@code catalog-cache.time-to-live}, since other instances only drop it once it expires.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String PRODUCTS_CACHE = "products";
+    public static final String CATALOG_CACHE = "catalog";
+    private static final int GENERATIONS = 1024;
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> catalogCacheCustomizer(
+            @Value("${catalog-cache.time-to-live}") Duration timeToLive) {
+        return cacheManager -> cacheManager.registerCustomCache(CATALOG_CACHE, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build());
+    }
+
+    @Bean
+    public CacheGenerations cacheGenerations(CacheManager cacheManager) {
+        return new CacheGenerations(cacheManager, GENERATIONS);
+    }
+}
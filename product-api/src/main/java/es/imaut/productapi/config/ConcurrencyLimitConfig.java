@@ -0,0 +1,52 @@
+package es.imaut.productapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Opt-in ({@code concurrency-limit.enabled}) load shedding in front of the controllers through a
+ * {@link ConcurrencyLimitFilter}. Reads and writes start at {@code concurrency-limit.read.initial-limit} and
+ * {@code concurrency-limit.write.initial-limit} requests in flight and adapt up to their {@code max-limit}.
+ */
+@Configuration
+@ConditionalOnProperty(value = "concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+    public static final String READ_LIMITER = "read";
+    public static final String WRITE_LIMITER = "write";
+
+    @Bean
+    public AdaptiveConcurrencyLimiter readConcurrencyLimiter(
+            @Value("${concurrency-limit.read.initial-limit}") int initialLimit,
+            @Value("${concurrency-limit.read.max-limit}") int maxLimit,
+            MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(READ_LIMITER, initialLimit, maxLimit, meterRegistry);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter writeConcurrencyLimiter(
+            @Value("${concurrency-limit.write.initial-limit}") int initialLimit,
+            @Value("${concurrency-limit.write.max-limit}") int maxLimit,
+            MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(WRITE_LIMITER, initialLimit, maxLimit, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Qualifier("readConcurrencyLimiter") AdaptiveConcurrencyLimiter reads,
+            @Qualifier("writeConcurrencyLimiter") AdaptiveConcurrencyLimiter writes,
+            @Value("${concurrency-limit.retry-after}") Duration retryAfter,
+            @Value("${management.endpoints.web.base-path:/actuator}") String actuatorPath) {
+        var registration = new FilterRegistrationBean<>(new ConcurrencyLimitFilter(reads, writes, retryAfter, actuatorPath));
+        // Right after the observation filter, so shed requests still show up in http.server.requests.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
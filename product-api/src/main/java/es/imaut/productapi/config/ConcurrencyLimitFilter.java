@@ -0,0 +1,88 @@
+package es.imaut.productapi.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Sheds load before it reaches the controllers. Reads ({@code GET}, {@code HEAD} and {@code OPTIONS}) and writes go
+ * through separate {@link AdaptiveConcurrencyLimiter}s, and a request over its limit is answered at once with
+ * {@code 503 Service Unavailable} and {@code Retry-After} instead of queueing in Tomcat. The permit is held until the
+ * response completes, including asynchronous ones. Requests under {@code excludedPath}, the actuator endpoints, are
+ * never limited so health checks and scrapes keep working under overload.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final AdaptiveConcurrencyLimiter reads;
+    private final AdaptiveConcurrencyLimiter writes;
+    private final Duration retryAfter;
+    private final String excludedPath;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter reads, AdaptiveConcurrencyLimiter writes,
+                                  Duration retryAfter, String excludedPath) {
+        this.reads = reads;
+        this.writes = writes;
+        this.retryAfter = retryAfter;
+        this.excludedPath = excludedPath;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var limiter = READ_METHODS.contains(request.getMethod()) ? reads : writes;
+        var permit = limiter.tryAcquire().orElse(null);
+        if (permit == null) {
+            response.setHeader(RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+            response.sendError(SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(permit));
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + excludedPath);
+    }
+
+    private record ReleasingAsyncListener(AdaptiveConcurrencyLimiter.Permit permit) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
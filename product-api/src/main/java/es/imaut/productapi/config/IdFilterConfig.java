@@ -0,0 +1,44 @@
+package es.imaut.productapi.config;
+
+import es.imaut.productapi.service.ProductService;
+import es.imaut.productapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * The product {@link IdFilter} lets every id through until it is built. Building is opt-in ({@code id-filter.enabled})
+ * because rows written behind the service's back are unknown to the filter until the next rebuild: the filter is
+ * built at startup and rebuilt every {@code id-filter.rebuild-interval}, which also drops deleted ids. Ids above the
+ * highest one seen by the last rebuild, less {@code id-filter.recent-ids}, are always looked up, so products created
+ * on other instances since then are still found.
+ */
+@Configuration
+public class IdFilterConfig {
+    public static final String PRODUCT_FILTER = "product";
+
+    @Bean
+    public IdFilter productIdFilter(@Value("${id-filter.false-positive-probability}") double falsePositiveProbability,
+                                    @Value("${id-filter.recent-ids}") long recentIds,
+                                    MeterRegistry meterRegistry) {
+        return new IdFilter(PRODUCT_FILTER, falsePositiveProbability, recentIds, meterRegistry);
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(value = "id-filter.enabled", havingValue = "true")
+    @RequiredArgsConstructor
+    static class IdFilterRebuildConfig {
+        private final ProductService service;
+
+        @Scheduled(initialDelay = 0, fixedDelayString = "${id-filter.rebuild-interval}")
+        public void rebuildIdFilter() {
+            service.rebuildIdFilter();
+        }
+    }
+}
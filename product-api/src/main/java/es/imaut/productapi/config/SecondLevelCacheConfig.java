@@ -0,0 +1,73 @@
+package es.imaut.productapi.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.ehcache.config.builders.ExpiryPolicyBuilder.noExpiration;
+import static org.ehcache.config.builders.ExpiryPolicyBuilder.timeToLiveExpiration;
+import static org.ehcache.config.builders.ResourcePoolsBuilder.heap;
+import static org.hibernate.cache.jcache.ConfigSettings.CACHE_MANAGER;
+import static org.hibernate.cache.jcache.ConfigSettings.MISSING_CACHE_STRATEGY;
+import static org.hibernate.cache.spi.RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+import static org.hibernate.cache.spi.RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+import static org.hibernate.cfg.AvailableSettings.*;
+
+/**
+ * Opt-in ({@code second-level-cache.enabled}) Hibernate second-level cache, kept in process by Ehcache through
+ * JCache. Entity regions are bounded by {@code second-level-cache.entity.*} and the query results region by
+ * {@code second-level-cache.query.*}; the update timestamps region never expires, as Hibernate requires. Hits,
+ * misses and puts are published per region as {@code hibernate.second.level.cache.*} with the Hibernate statistics.
+ */
+@Configuration
+@ConditionalOnProperty(value = "second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+    public static final String PRODUCT_REGION = "product";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${second-level-cache.entity.max-entries}") long entityMaxEntries,
+            @Value("${second-level-cache.entity.time-to-live}") Duration entityTimeToLive,
+            @Value("${second-level-cache.query.max-entries}") long queryMaxEntries,
+            @Value("${second-level-cache.query.time-to-live}") Duration queryTimeToLive) {
+        var configuration = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(PRODUCT_REGION, region(entityMaxEntries, timeToLiveExpiration(entityTimeToLive)))
+                .withCache(DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                        region(queryMaxEntries, timeToLiveExpiration(queryTimeToLive)))
+                .withCache(DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(entityMaxEntries, noExpiration()))
+                .build();
+        var provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        // Managers are shared per URI, so each application context gets its own.
+        return provider.getCacheManager(URI.create("urn:product-api:" + UUID.randomUUID()), configuration);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(USE_SECOND_LEVEL_CACHE, true);
+            properties.put(USE_QUERY_CACHE, true);
+            properties.put(CACHE_REGION_FACTORY, "jcache");
+            properties.put(CACHE_MANAGER, hibernateCacheManager);
+            properties.put(MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CacheConfiguration<Object, Object> region(long maxEntries, ExpiryPolicy<Object, Object> expiry) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, heap(maxEntries))
+                .withExpiry(expiry)
+                .build();
+    }
+}
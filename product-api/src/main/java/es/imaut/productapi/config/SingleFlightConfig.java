@@ -0,0 +1,17 @@
+package es.imaut.productapi.config;
+
+import es.imaut.productapi.domain.ProductResponse;
+import es.imaut.productapi.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SingleFlightConfig {
+    public static final String PRODUCT_FLIGHT = "product";
+
+    @Bean
+    public SingleFlight<Long, ProductResponse> productSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>(PRODUCT_FLIGHT, meterRegistry);
+    }
+}
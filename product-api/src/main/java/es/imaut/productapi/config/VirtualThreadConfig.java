@@ -0,0 +1,24 @@
+package es.imaut.productapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in ({@code virtual-threads.enabled}) mode that runs every request on its own virtual thread instead of
+ * Tomcat's bounded platform-thread pool. Request concurrency is then no longer capped by the pool; the connection
+ * pools still bound what reaches the database, as requests wait at most {@code connection-timeout} for one of the
+ * {@code maximum-pool-size} connections set in the {@code hikari} section of each pool.
+ */
+@Configuration
+@ConditionalOnProperty(value = "virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+}
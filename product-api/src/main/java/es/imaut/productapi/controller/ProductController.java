@@ -1,32 +1,86 @@
 package es.imaut.productapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductBatchResponse;
+import es.imaut.productapi.domain.ProductLookupResponse;
 import es.imaut.productapi.domain.ProductResponse;
 import es.imaut.productapi.service.ProductService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.json.JsonMergePatch;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
 
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static java.lang.String.valueOf;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 @RequestMapping("/products")
+@Validated
 @RequiredArgsConstructor
 public class ProductController {
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_LOOKUP_SIZE = 1000;
+
     private final ProductService service;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Serves the whole product list from the precompressed catalog snapshot: gzip-encoded when the client accepts it
+     * and it is smaller, identity-encoded otherwise. Matching {@code If-None-Match} requests get a 304.
+     */
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> findAll() {
-        return ok(service.findAll());
+    public ResponseEntity<byte[]> findAll(@RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        var snapshot = service.findAllSnapshot();
+        var response = ok().contentType(APPLICATION_JSON).varyBy(ACCEPT_ENCODING).eTag(snapshot.eTag());
+        if (acceptsGzip(acceptEncoding) && snapshot.gzip().length < snapshot.json().length) {
+            return response.header(CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<ProductLookupResponse> findAllById(
+            @RequestParam @Size(max = MAX_LOOKUP_SIZE) List<Long> ids) {
+        return ok(service.findAllById(ids));
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAll() {
+        var writer = objectMapper.writer().without(FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("");
+        return ok().contentType(APPLICATION_NDJSON).body(outputStream -> {
+            try (var generator = objectMapper.createGenerator(outputStream)) {
+                service.exportAll(product -> {
+                    try {
+                        writer.writeValue(generator, product);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        });
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> findById(@PathVariable Long id) {
-        return ok(service.findById(id));
+        var product = service.findById(id);
+        return ok().eTag(valueOf(product.getVersion())).body(product);
     }
 
     @PostMapping
@@ -34,6 +88,12 @@ public class ProductController {
         return ok(service.create(request));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchResponse> createAll(
+            @RequestBody @Size(max = MAX_BATCH_SIZE) List<CreateProductRequest> requests) {
+        return ok(service.createAll(requests));
+    }
+
     @PatchMapping(path = "/{id}", consumes = "application/merge-patch+json")
     public ResponseEntity<ProductResponse> update(@PathVariable Long id, @RequestBody JsonMergePatch patch) {
         return ok(service.update(id, patch));
@@ -44,4 +104,18 @@ public class ProductController {
         service.delete(id);
         return ok().build();
     }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim();
+            if ("gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+                return Arrays.stream(parameters).skip(1).map(String::trim).noneMatch(q -> q.matches("q=0(\\.0*)?"));
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,51 @@
+package es.imaut.productapi.converter;
+
+import javax.json.JsonMergePatch;
+import javax.json.JsonValue;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+import static javax.json.Json.createArrayBuilder;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static javax.json.Json.createValue;
+
+/**
+ * Merge patch read with Jackson's streaming parser. The patch is kept as plain Java values ({@link Map} for objects,
+ * {@link java.util.List} for arrays, {@link String}, {@link Number}, {@link Boolean} and {@code null}) so it can be
+ * applied without building a JSON-P tree. The JSON-P view is only materialised when {@link #toJsonValue()} or
+ * {@link #apply(JsonValue)} is called.
+ */
+public record StreamingMergePatch(Object value) implements JsonMergePatch {
+    @Override
+    public JsonValue apply(JsonValue target) {
+        return createMergePatch(toJsonValue()).apply(target);
+    }
+
+    @Override
+    public JsonValue toJsonValue() {
+        return toJsonValue(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonValue toJsonValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return createObjectBuilder((Map<String, Object>) map).build();
+        } else if (value instanceof Collection<?> collection) {
+            return createArrayBuilder(collection).build();
+        } else if (value instanceof String string) {
+            return createValue(string);
+        } else if (value instanceof BigDecimal decimal) {
+            return createValue(decimal);
+        } else if (value instanceof BigInteger integer) {
+            return createValue(integer);
+        } else if (value instanceof Number number) {
+            return createValue(number.longValue());
+        } else if (value instanceof Boolean bool) {
+            return bool ? JsonValue.TRUE : JsonValue.FALSE;
+        }
+        return JsonValue.NULL;
+    }
+}
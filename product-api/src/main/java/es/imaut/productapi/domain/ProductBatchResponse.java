@@ -0,0 +1,20 @@
+package es.imaut.productapi.domain;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record ProductBatchResponse(
+        List<ProductResponse> created,
+        List<ProductBatchError> errors) {
+
+    @Builder
+    public record ProductBatchError(
+            int index,
+            String defaultMessage,
+            String field,
+            Object rejectedValue,
+            String code) {
+    }
+}
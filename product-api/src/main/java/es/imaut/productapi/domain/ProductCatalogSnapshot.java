@@ -0,0 +1,24 @@
+package es.imaut.productapi.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.util.DigestUtils.md5DigestAsHex;
+
+/**
+ * The serialized product list together with its gzip encoding, so full reads can be answered without serializing or
+ * compressing again. The weak entity tag identifies the JSON content and is shared by both encodings.
+ */
+public record ProductCatalogSnapshot(byte[] json, byte[] gzip, String eTag) {
+    public static ProductCatalogSnapshot of(byte[] json) {
+        var gzip = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (var out = new GZIPOutputStream(gzip)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ProductCatalogSnapshot(json, gzip.toByteArray(), "W/\"" + md5DigestAsHex(json) + "\"");
+    }
+}
@@ -0,0 +1,11 @@
+package es.imaut.productapi.domain;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record ProductLookupResponse(
+        List<ProductResponse> products,
+        List<Long> missing) {
+}
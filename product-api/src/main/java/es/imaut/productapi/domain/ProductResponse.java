@@ -1,5 +1,6 @@
 package es.imaut.productapi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -17,6 +18,8 @@ public class ProductResponse {
     private BigDecimal netPrice;
     private String currency;
     private String unit;
+    @JsonIgnore
+    private Long version;
 
     @Override
     @Generated
@@ -30,10 +30,10 @@ public class ProductApiExceptionHandler {
                 .errors(e.getConstraintViolations().stream().map(cv -> ProductApiErrorResponse.ProductApiError.builder()
                         .defaultMessage(messageSource.getMessage(
                                 cv.getMessageTemplate(),
-                                new Object[] { cv.getLeafBean().getClass().getSimpleName(), cv.getPropertyPath().toString(), cv.getInvalidValue() },
+                                new Object[] { cv.getRootBeanClass().getSimpleName(), cv.getPropertyPath().toString(), cv.getInvalidValue() },
                                 cv.getMessage(),
                                 request.getLocale()))
-                        .objectName(decapitalize(cv.getRootBean().getClass().getSimpleName()))
+                        .objectName(decapitalize(cv.getRootBeanClass().getSimpleName()))
                         .field(valueOf(cv.getPropertyPath()))
                         .rejectedValue(cv.getInvalidValue())
                         .code(cv.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName())
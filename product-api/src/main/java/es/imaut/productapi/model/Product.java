@@ -5,14 +5,18 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
 
 import java.math.BigDecimal;
 import java.util.Objects;
 
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static es.imaut.productapi.config.SecondLevelCacheConfig.PRODUCT_REGION;
+import static jakarta.persistence.GenerationType.TABLE;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 @Entity
 @Table(name = "product")
+@Cache(usage = READ_WRITE, region = PRODUCT_REGION)
 @Getter
 @Setter
 @ToString
@@ -21,9 +25,14 @@ import static jakarta.persistence.GenerationType.IDENTITY;
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "product", allocationSize = 50)
     @Column(name = "id")
     private Long id;
+    @Version
+    @Column(name = "version")
+    private Long version;
     @NotBlank
     @Size(max = 255)
     @Column(name = "name")
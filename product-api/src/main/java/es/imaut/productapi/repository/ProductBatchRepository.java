@@ -0,0 +1,14 @@
+package es.imaut.productapi.repository;
+
+import es.imaut.productapi.model.Product;
+
+import java.util.List;
+
+public interface ProductBatchRepository {
+    /**
+     * Persists all products in the current transaction, flushing and clearing the persistence context every JDBC
+     * batch so Hibernate sends the inserts as batches and memory stays flat. Ids come from the pooled generator and
+     * are set on the given instances, which are returned in order.
+     */
+    List<Product> insertAll(List<Product> products);
+}
@@ -0,0 +1,30 @@
+package es.imaut.productapi.repository;
+
+import es.imaut.productapi.model.Product;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class ProductBatchRepositoryImpl implements ProductBatchRepository {
+    private final EntityManager entityManager;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public List<Product> insertAll(List<Product> products) {
+        for (int i = 0; i < products.size(); i++) {
+            entityManager.persist(products.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        return products;
+    }
+}
@@ -0,0 +1,22 @@
+package es.imaut.productapi.repository;
+
+import java.util.Map;
+
+/**
+ * Single-row writes that skip the usual read-modify-write. Without the second-level cache each is one statement that
+ * bypasses the persistence context. With it, Hibernate would evict every cached product after such a bulk statement,
+ * so the row is loaded, from the cache when it is there, and written through the persistence context instead, which
+ * only evicts that product.
+ */
+public interface ProductPatchRepository {
+    /**
+     * Sets only the given properties of one product and bumps its version. Returns the number of rows updated, so
+     * {@code 0} means there is no product with that id.
+     */
+    int patch(Long id, Map<String, Object> changes);
+
+    /**
+     * Deletes one product. Returns the number of rows deleted, so {@code 0} means there is no product with that id.
+     */
+    int purgeById(Long id);
+}
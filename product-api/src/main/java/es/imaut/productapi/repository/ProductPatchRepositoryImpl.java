@@ -0,0 +1,60 @@
+package es.imaut.productapi.repository;
+
+import es.imaut.productapi.model.Product;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+class ProductPatchRepositoryImpl implements ProductPatchRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long id, Map<String, Object> changes) {
+        if (secondLevelCacheEnabled()) {
+            var product = entityManager.find(Product.class, id);
+            if (product == null) {
+                return 0;
+            }
+            var properties = PropertyAccessorFactory.forBeanPropertyAccess(product);
+            changes.forEach(properties::setPropertyValue);
+            // Flushes here so a constraint violation is raised by the patch rather than at commit.
+            entityManager.flush();
+            return 1;
+        }
+        var builder = entityManager.getCriteriaBuilder();
+        var update = builder.createCriteriaUpdate(Product.class);
+        var product = update.from(Product.class);
+        changes.forEach((property, value) -> update.set(product.get(property), value));
+        update.set(product.<Long>get("version"), builder.sum(product.get("version"), 1L));
+        update.where(builder.equal(product.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int purgeById(Long id) {
+        if (secondLevelCacheEnabled()) {
+            var product = entityManager.find(Product.class, id);
+            if (product == null) {
+                return 0;
+            }
+            entityManager.remove(product);
+            entityManager.flush();
+            return 1;
+        }
+        return entityManager.createQuery("delete from Product p where p.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    private boolean secondLevelCacheEnabled() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+}
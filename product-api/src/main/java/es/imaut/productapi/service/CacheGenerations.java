@@ -0,0 +1,70 @@
+package es.imaut.productapi.service;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.Objects;
+
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+
+/**
+ * Keeps loads that race with writes out of the caches. A load takes the generation of its key before it reads and
+ * only stores what it read if the key was not evicted in the meantime. An eviction bumps the generation and evicts
+ * the key in one step, once the surrounding transaction commits, so a value read before a write can never be stored
+ * after the write evicted it. Keys share a fixed number of generations, so a write may also keep a concurrent load of
+ * an unrelated key from being stored; that value is then simply loaded again on the next miss.
+ * <p>
+ * Evictions only reach the caches of this instance. Other instances keep serving what they cached until it expires,
+ * so the time to live of each cache bounds how stale they can be.
+ */
+public class CacheGenerations {
+    private final CacheManager cacheManager;
+    private final long[] generations;
+
+    public CacheGenerations(CacheManager cacheManager, int stripes) {
+        this.cacheManager = cacheManager;
+        this.generations = new long[stripes];
+    }
+
+    public synchronized long current(String cacheName, Object key) {
+        return generations[stripe(cacheName, key)];
+    }
+
+    /**
+     * Stores the value unless the key was evicted since {@code generation} was taken, and tells whether it did.
+     */
+    public synchronized boolean put(String cacheName, Object key, Object value, long generation) {
+        if (generations[stripe(cacheName, key)] != generation) {
+            return false;
+        }
+        cacheManager.getCache(cacheName).put(key, value);
+        return true;
+    }
+
+    /**
+     * Evicts the key, after the current transaction commits if there is one, or right away otherwise. Nothing is
+     * evicted if the transaction rolls back.
+     */
+    public void evict(String cacheName, Object key) {
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(cacheName, key);
+                }
+            });
+        } else {
+            evictNow(cacheName, key);
+        }
+    }
+
+    private synchronized void evictNow(String cacheName, Object key) {
+        generations[stripe(cacheName, key)]++;
+        cacheManager.getCache(cacheName).evict(key);
+    }
+
+    private int stripe(String cacheName, Object key) {
+        return Math.floorMod(Objects.hash(cacheName, key), generations.length);
+    }
+}
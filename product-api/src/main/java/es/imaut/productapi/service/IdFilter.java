@@ -0,0 +1,164 @@
+package es.imaut.productapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter over the ids of one table, so lookups of ids that certainly do not exist can be answered
+ * without a database round-trip. It never reports an existing id as absent, but may report absent ids, including
+ * deleted ones, as present until the next {@link #rebuild(long, Supplier)}. Until the first rebuild every id is
+ * reported as present.
+ * <p>
+ * Ids written by other instances, or behind the service's back, are only known after the next rebuild. Ids come
+ * from blocks of a shared generator, so those written since the last rebuild are above, or just below, the highest
+ * id it saw: ids above that id less {@code recentIds} are always let through to the database. {@code recentIds}
+ * should cover an allocation block per instance.
+ * <p>
+ * Filtered lookups are counted in {@code id.filter.lookups}, tagged with the filter name and a result of
+ * {@code absent} (answered by the filter), {@code present} or {@code false_positive} (passed by the filter but not
+ * found). {@code id.filter.expected.false.positive.rate} estimates the current rate from the filter fill.
+ */
+public class IdFilter {
+    private static final long MIN_EXPECTED_IDS = 10_000;
+    private static final long MAX_BITS = 1L << 34;
+
+    private final double falsePositiveProbability;
+    private final long recentIds;
+    private final Counter absent;
+    private final Counter present;
+    private final Counter falsePositive;
+    private volatile Bits current;
+    private volatile long recentFrom;
+    private Bits building;
+
+    public IdFilter(String name, double falsePositiveProbability, long recentIds, MeterRegistry meterRegistry) {
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.recentIds = recentIds;
+        this.absent = counter(name, "absent", meterRegistry);
+        this.present = counter(name, "present", meterRegistry);
+        this.falsePositive = counter(name, "false_positive", meterRegistry);
+        Gauge.builder("id.filter.expected.false.positive.rate", this, IdFilter::expectedFalsePositiveRate)
+                .description("False positive rate expected from the current filter fill")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public boolean mightContain(long id) {
+        var bits = current;
+        if (bits == null || id > recentFrom || bits.mightContain(id)) {
+            return true;
+        }
+        absent.increment();
+        return false;
+    }
+
+    /**
+     * Records the outcome of a database lookup for an id the filter let through.
+     */
+    public void recordLookup(boolean found) {
+        if (current != null) {
+            (found ? present : falsePositive).increment();
+        }
+    }
+
+    public synchronized void add(long id) {
+        if (current != null) {
+            current.add(id);
+        }
+        if (building != null) {
+            building.add(id);
+        }
+    }
+
+    /**
+     * Replaces the filter with one sized for twice {@code count} ids and filled from the stream {@code ids} opens.
+     * Ids added from the moment the rebuild starts go to both filters, and the stream is only opened afterwards, so
+     * an id is either read by the stream or added while it runs, and none is lost in the swap.
+     */
+    public void rebuild(long count, Supplier<Stream<Long>> ids) {
+        var next = new Bits(Math.max(2 * count, MIN_EXPECTED_IDS), falsePositiveProbability);
+        synchronized (this) {
+            building = next;
+        }
+        try (var stream = ids.get()) {
+            var highest = stream.mapToLong(Long::longValue).peek(next::add).max().orElse(0);
+            synchronized (this) {
+                // Published before the filter it belongs to, which readers load first.
+                recentFrom = highest - recentIds;
+                current = next;
+            }
+        } finally {
+            synchronized (this) {
+                building = null;
+            }
+        }
+    }
+
+    public double expectedFalsePositiveRate() {
+        var bits = current;
+        return bits == null ? Double.NaN : bits.expectedFalsePositiveRate();
+    }
+
+    private static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("id.filter.lookups")
+                .description("Lookups checked against the id filter")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+
+        Bits(long expected, double falsePositiveProbability) {
+            var optimal = (long) Math.ceil(-expected * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((Math.min(optimal, MAX_BITS) + 63) / 64));
+            this.size = 64L * words.length();
+            this.hashes = Math.max(1, (int) Math.round((double) size / expected * Math.log(2)));
+        }
+
+        void add(long id) {
+            var hash = mix(id);
+            var step = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                var bit = Math.floorMod(hash + i * step, size);
+                var mask = 1L << bit;
+                words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            }
+        }
+
+        boolean mightContain(long id) {
+            var hash = mix(id);
+            var step = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                var bit = Math.floorMod(hash + i * step, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double expectedFalsePositiveRate() {
+            long set = 0;
+            for (int i = 0; i < words.length(); i++) {
+                set += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) set / size, hashes);
+        }
+
+        // SplitMix64 finalizer: spreads sequential ids over the whole bit range.
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
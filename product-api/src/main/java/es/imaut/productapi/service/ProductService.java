@@ -1,49 +1,237 @@
 package es.imaut.productapi.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductBatchResponse;
+import es.imaut.productapi.domain.ProductBatchResponse.ProductBatchError;
+import es.imaut.productapi.domain.ProductCatalogSnapshot;
+import es.imaut.productapi.domain.ProductLookupResponse;
 import es.imaut.productapi.domain.ProductResponse;
 import es.imaut.productapi.exception.ProductNotFoundException;
 import es.imaut.productapi.mapper.ProductDetailsMapper;
 import es.imaut.productapi.mapper.ProductMapper;
+import es.imaut.productapi.model.Product;
 import es.imaut.productapi.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.json.JsonMergePatch;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import static es.imaut.productapi.config.CacheConfig.CATALOG_CACHE;
+import static es.imaut.productapi.config.CacheConfig.PRODUCTS_CACHE;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
+    private static final Object CATALOG_KEY = SimpleKey.EMPTY;
+
     private final ProductRepository repository;
     private final ProductMapper productMapper;
     private final ProductDetailsMapper detailsMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight<Long, ProductResponse> singleFlight;
+    private final IdFilter idFilter;
+    private final CacheGenerations cacheGenerations;
+
+    /**
+     * Serializes and compresses the whole product list once and keeps it in the catalog cache until a product is
+     * created, updated or deleted on this instance, or the catalog cache expires. A snapshot built while a product
+     * was written is returned but not cached, see {@link CacheGenerations}.
+     */
+    public ProductCatalogSnapshot findAllSnapshot() {
+        var cached = cacheManager.getCache(CATALOG_CACHE).get(CATALOG_KEY, ProductCatalogSnapshot.class);
+        if (cached != null) {
+            return cached;
+        }
+        var generation = cacheGenerations.current(CATALOG_CACHE, CATALOG_KEY);
+        try {
+            var snapshot = ProductCatalogSnapshot.of(objectMapper.writeValueAsBytes(
+                    repository.findAll().stream().map(detailsMapper::from).toList()));
+            cacheGenerations.put(CATALOG_CACHE, CATALOG_KEY, snapshot, generation);
+            return snapshot;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-    public List<ProductResponse> findAll() {
-        return repository.findAll().stream().map(detailsMapper::from).toList();
+    /**
+     * Walks the whole catalog with a forward-only cursor and hands every product to the consumer as soon as it is
+     * read. Each product is detached once mapped so the persistence context never grows with the catalog.
+     */
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<ProductResponse> consumer) {
+        try (var products = repository.streamAll()) {
+            products.forEach(p -> {
+                consumer.accept(detailsMapper.from(p));
+                entityManager.detach(p);
+            });
+        }
     }
 
+    /**
+     * Concurrent cache misses for the same product share a single repository load. The load runs in its own
+     * read-only transaction, so callers waiting on it do not hold a connection. Ids the {@link IdFilter} knows to be
+     * absent are rejected without a load. A product loaded while it was updated or deleted is returned but not
+     * cached, see {@link CacheGenerations}.
+     */
     public ProductResponse findById(Long id) {
-        return repository.findById(id)
-                .map(detailsMapper::from)
-                .orElseThrow(ProductNotFoundException::new);
+        var cached = cacheManager.getCache(PRODUCTS_CACHE).get(id, ProductResponse.class);
+        if (cached != null) {
+            return cached;
+        }
+        if (!idFilter.mightContain(id)) {
+            throw new ProductNotFoundException();
+        }
+        return singleFlight.load(id, () -> {
+            var generation = cacheGenerations.current(PRODUCTS_CACHE, id);
+            var product = repository.findById(id);
+            idFilter.recordLookup(product.isPresent());
+            var response = product.map(detailsMapper::from).orElseThrow(ProductNotFoundException::new);
+            cacheGenerations.put(PRODUCTS_CACHE, id, response, generation);
+            return response;
+        });
+    }
+
+    /**
+     * Resolves many products at once: ids already in the product cache are served from it and the rest are read
+     * with a single {@code IN} query and cached, except for ids the {@link IdFilter} knows to be absent. Products come
+     * back in request order, without duplicates, and ids that match no product are listed as missing.
+     */
+    @Transactional(readOnly = true)
+    public ProductLookupResponse findAllById(List<Long> ids) {
+        var requested = ids.stream().filter(Objects::nonNull).distinct().toList();
+        var cache = cacheManager.getCache(PRODUCTS_CACHE);
+        var found = new HashMap<Long, ProductResponse>();
+        var misses = new ArrayList<Long>();
+        for (var id : requested) {
+            var cached = cache.get(id, ProductResponse.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        var loads = misses.stream().filter(idFilter::mightContain).toList();
+        if (!loads.isEmpty()) {
+            var generations = new HashMap<Long, Long>();
+            loads.forEach(id -> generations.put(id, cacheGenerations.current(PRODUCTS_CACHE, id)));
+            repository.findAllById(loads).stream().map(detailsMapper::from).forEach(product -> {
+                cacheGenerations.put(PRODUCTS_CACHE, product.getId(), product, generations.get(product.getId()));
+                found.put(product.getId(), product);
+            });
+            loads.forEach(id -> idFilter.recordLookup(found.containsKey(id)));
+        }
+        return ProductLookupResponse.builder()
+                .products(requested.stream().filter(found::containsKey).map(found::get).toList())
+                .missing(misses.stream().filter(id -> !found.containsKey(id)).toList())
+                .build();
     }
 
     public ProductResponse create(CreateProductRequest request) {
-        return detailsMapper.from(repository.save(productMapper.from(request)));
+        var product = repository.save(productMapper.from(request));
+        idFilter.add(product.getId());
+        cacheGenerations.evict(CATALOG_CACHE, CATALOG_KEY);
+        return detailsMapper.from(product);
+    }
+
+    /**
+     * Validates every request on its own and inserts the valid ones with JDBC batch statements in a single
+     * transaction. Invalid requests are reported by their index in the input instead of failing the whole batch.
+     */
+    @Transactional
+    public ProductBatchResponse createAll(List<CreateProductRequest> requests) {
+        var products = new ArrayList<Product>(requests.size());
+        var errors = new ArrayList<ProductBatchError>();
+        for (int i = 0; i < requests.size(); i++) {
+            var request = requests.get(i);
+            if (request == null) {
+                errors.add(ProductBatchError.builder().index(i).defaultMessage("must not be null").code("NotNull").build());
+                continue;
+            }
+            var violations = validator.validate(request);
+            if (violations.isEmpty()) {
+                products.add(productMapper.from(request));
+            } else {
+                var index = i;
+                violations.stream().map(cv -> ProductBatchError.builder()
+                        .index(index)
+                        .defaultMessage(cv.getMessage())
+                        .field(String.valueOf(cv.getPropertyPath()))
+                        .rejectedValue(cv.getInvalidValue())
+                        .code(cv.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName())
+                        .build()).forEach(errors::add);
+            }
+        }
+        var created = repository.insertAll(products);
+        created.forEach(product -> idFilter.add(product.getId()));
+        cacheGenerations.evict(CATALOG_CACHE, CATALOG_KEY);
+        return ProductBatchResponse.builder()
+                .created(created.stream().map(detailsMapper::from).toList())
+                .errors(errors)
+                .build();
     }
 
+    /**
+     * Writes only the patched columns with one {@code UPDATE} and reads the row back once. The patched values are
+     * validated against the {@link Product} constraints before anything is written.
+     */
+    @Transactional
     public ProductResponse update(Long id, JsonMergePatch patch) {
+        var changes = productMapper.changes(patch);
+        validate(changes);
+        if (!changes.isEmpty() && repository.patch(id, changes) == 0) {
+            throw new ProductNotFoundException();
+        }
+        cacheGenerations.evict(PRODUCTS_CACHE, id);
+        cacheGenerations.evict(CATALOG_CACHE, CATALOG_KEY);
         return repository.findById(id)
-                .map(c -> productMapper.merge(patch, c))
-                .map(repository::save)
                 .map(detailsMapper::from)
                 .orElseThrow(ProductNotFoundException::new);
     }
 
+    /**
+     * Removes the product without loading it first, unless the second-level cache is enabled. Deleting a product that does
+     * not exist is a no-op.
+     */
     public void delete(Long id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
+        repository.purgeById(id);
+        cacheGenerations.evict(PRODUCTS_CACHE, id);
+        cacheGenerations.evict(CATALOG_CACHE, CATALOG_KEY);
+    }
+
+    /**
+     * Rebuilds the {@link IdFilter} from the id column, streamed in one transaction. It is not read-only, so it reads
+     * from the primary even when read-only transactions go to a replica, and a lagging replica cannot drop ids.
+     */
+    @Transactional
+    public void rebuildIdFilter() {
+        idFilter.rebuild(repository.count(), repository::streamAllIds);
+    }
+
+    private void validate(Map<String, Object> changes) {
+        var violations = new HashSet<ConstraintViolation<Product>>();
+        changes.forEach((property, value) -> violations.addAll(validator.validateValue(Product.class, property, value)));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
         }
     }
 }
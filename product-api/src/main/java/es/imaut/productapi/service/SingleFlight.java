@@ -0,0 +1,72 @@
+package es.imaut.productapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader and every caller that
+ * arrives while it is still running waits for and shares its result, or its exception. Nothing is kept once the load
+ * completes, so later callers load again. Calls are counted in {@code single.flight.requests}, tagged with the
+ * flight name and whether the caller {@code loaded} or was {@code coalesced}.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = counter(name, "loaded", meterRegistry);
+        this.coalesced = counter(name, "coalesced", meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        var call = new CompletableFuture<V>();
+        var running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            return join(running);
+        }
+        loaded.increment();
+        try {
+            var value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public long coalescedCount() {
+        return (long) coalesced.count();
+    }
+
+    private V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("single.flight.requests")
+                .description("Loads requested through a single flight")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
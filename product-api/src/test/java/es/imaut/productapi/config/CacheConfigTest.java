@@ -0,0 +1,50 @@
+package es.imaut.productapi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+
+import static es.imaut.productapi.config.CacheConfig.CATALOG_CACHE;
+import static es.imaut.productapi.config.CacheConfig.PRODUCTS_CACHE;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest(classes = { CacheConfig.class }, properties = { "catalog-cache.time-to-live=30s" })
+@ImportAutoConfiguration({ CacheAutoConfiguration.class })
+class CacheConfigTest {
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    @DisplayName("Catalog cache should expire after its own time to live")
+    void catalogCacheShouldExpireAfterItsOwnTimeToLive() {
+        assertThat(expireAfterWrite(CATALOG_CACHE)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Products cache should expire after the time to live of the cache spec")
+    void productsCacheShouldExpireAfterTheTimeToLiveOfTheCacheSpec() {
+        assertThat(expireAfterWrite(PRODUCTS_CACHE)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    @DisplayName("Catalog cache should record statistics")
+    void catalogCacheShouldRecordStatistics() {
+        assertThat(nativeCache(CATALOG_CACHE).policy().isRecordingStats()).isTrue();
+    }
+
+    private Duration expireAfterWrite(String name) {
+        return nativeCache(name).policy().expireAfterWrite().orElseThrow().getExpiresAfter();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(String name) {
+        return (Cache<Object, Object>) cacheManager.getCache(name).getNativeCache();
+    }
+}
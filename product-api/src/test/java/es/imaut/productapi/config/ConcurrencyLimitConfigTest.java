@@ -0,0 +1,108 @@
+package es.imaut.productapi.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "concurrency-limit.enabled=true",
+        "concurrency-limit.read.initial-limit=2",
+        "concurrency-limit.read.max-limit=2",
+        "concurrency-limit.retry-after=3s"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ConcurrencyLimitConfigTest {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private WebTestClient webClient;
+    @Autowired
+    @Qualifier("readConcurrencyLimiter")
+    private AdaptiveConcurrencyLimiter reads;
+    private final List<AdaptiveConcurrencyLimiter.Permit> held = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        held.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should return 200 OK under the read limit")
+    void getProductsShouldReturn200OkUnderTheReadLimit() {
+        webClient.get().uri("http://localhost:" + port + "/products").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should return 503 Service Unavailable with Retry-After over the read limit")
+    void getProductsShouldReturn503ServiceUnavailableWithRetryAfterOverTheReadLimit() {
+        exhaustReads();
+        webClient.get().uri("http://localhost:" + port + "/products").exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals(RETRY_AFTER, "3")
+                .expectBody().jsonPath("$.message").isEqualTo("Too many concurrent requests");
+    }
+
+    @Test
+    @DisplayName("IT: GET /products as NDJSON should hold its read permit until the stream completes")
+    void getProductsAsNdjsonShouldHoldItsReadPermitUntilTheStreamCompletes() {
+        webClient.get().uri("http://localhost:" + port + "/products").accept(APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult();
+        var deadline = System.nanoTime() + SECONDS.toNanos(5);
+        while (reads.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(reads.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("IT: writes should not be limited by reads in flight")
+    void writesShouldNotBeLimitedByReadsInFlight() {
+        exhaustReads();
+        webClient.delete().uri("http://localhost:" + port + "/products/1").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("IT: actuator should not be limited and should publish limiter metrics")
+    void actuatorShouldNotBeLimitedAndShouldPublishLimiterMetrics() {
+        exhaustReads();
+        webClient.get().uri("http://localhost:" + port + "/products").exchange()
+                .expectStatus().isEqualTo(503);
+        webClient.get().uri("http://localhost:" + port + "/actuator/health").exchange()
+                .expectStatus().isOk();
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.rejected?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").value(value -> assertThat((Double) value).isPositive());
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.in.flight?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isEqualTo((double) reads.getInFlight());
+        webClient.get().uri("http://localhost:" + port + "/actuator/metrics/http.server.concurrency.limit?tag=name:read").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isEqualTo((double) reads.getLimit());
+    }
+
+    private void exhaustReads() {
+        while (reads.getInFlight() < reads.getLimit()) {
+            reads.tryAcquire().ifPresent(held::add);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package es.imaut.productapi.config;
+
+import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.exception.ProductNotFoundException;
+import es.imaut.productapi.service.ProductService;
+import es.imaut.productapi.service.IdFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static es.imaut.productapi.config.IdFilterConfig.PRODUCT_FILTER;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@SpringBootTest(properties = { "id-filter.enabled=true", "id-filter.recent-ids=0" })
+@ActiveProfiles("test")
+class IdFilterConfigTest {
+    private static final String INSERT_PRODUCT = "insert into product (id, name, description, net_price, currency, unit) "
+            + "values (?, 'Product', 'Software development', '350', 'EUR', 'day')";
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private IdFilter idFilter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update(INSERT_PRODUCT, 100000L);
+        jdbcTemplate.update(INSERT_PRODUCT, 100002L);
+        service.rebuildIdFilter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from product");
+    }
+
+    @Test
+    @DisplayName("IT: find by id should answer absent ids from the filter")
+    void findByIdShouldAnswerAbsentIdsFromTheFilter() {
+        var absent = lookups("absent");
+        assertThatThrownBy(() -> service.findById(100001L))
+                .isInstanceOf(ProductNotFoundException.class);
+        assertThat(lookups("absent")).isEqualTo(absent + 1);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should find existing and created products")
+    void findByIdShouldFindExistingAndCreatedProducts() {
+        var request = new CreateProductRequest();
+        request.setName("Created");
+        request.setDescription("Software development");
+        request.setNetPrice(new BigDecimal("350"));
+        request.setCurrency("EUR");
+        request.setUnit("day");
+        var created = service.create(request);
+        var present = lookups("present");
+        assertThat(service.findById(100000L).getName()).isEqualTo("Product");
+        assertThat(service.findById(created.getId()).getName()).isEqualTo("Created");
+        assertThat(lookups("present")).isEqualTo(present + 2);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should look up ids above the highest rebuilt id")
+    void findByIdShouldLookUpIdsAboveTheHighestRebuiltId() {
+        jdbcTemplate.update(INSERT_PRODUCT, 100003L);
+        assertThat(service.findById(100003L).getName()).isEqualTo("Product");
+    }
+
+    @Test
+    @DisplayName("IT: rebuild should drop deleted ids")
+    void rebuildShouldDropDeletedIds() {
+        service.delete(100000L);
+        assertThat(idFilter.mightContain(100000L)).isTrue();
+        service.rebuildIdFilter();
+        assertThat(idFilter.mightContain(100000L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("IT: expected false positive rate should be published")
+    void expectedFalsePositiveRateShouldBePublished() {
+        assertThat(meterRegistry.get("id.filter.expected.false.positive.rate").tag("name", PRODUCT_FILTER).gauge().value())
+                .isBetween(0.0, 0.01);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("id.filter.lookups").tag("name", PRODUCT_FILTER).tag("result", result).counter().count();
+    }
+}
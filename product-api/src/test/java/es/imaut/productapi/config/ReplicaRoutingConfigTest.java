@@ -0,0 +1,168 @@
+package es.imaut.productapi.config;
+
+import es.imaut.productapi.domain.ProductResponse;
+import es.imaut.productapi.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+import static es.imaut.productapi.config.CacheConfig.PRODUCTS_CACHE;
+import static es.imaut.productapi.config.ReplicaRoutingDataSource.PRIMARY;
+import static es.imaut.productapi.config.ReplicaRoutingDataSource.REPLICA;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "replica.enabled=true",
+        "replica.datasource.url=jdbc:h2:mem:product-api-replica",
+        "replica.datasource.username=sa",
+        "replica.datasource.password=sa",
+        "replica.datasource.driver-class-name=org.h2.Driver"
+})
+@AutoConfigureMockMvc
+@Import(ReplicaRoutingConfigTest.ReadThenWriteController.class)
+@ActiveProfiles("test")
+class ReplicaRoutingConfigTest {
+    private static final String INSERT_PRODUCT = "insert into product (id, name, description, net_price, currency, unit) "
+            + "values (1, ?, 'Software development', '350', 'EUR', 'day')";
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CacheManager cacheManager;
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var pools = dataSource.unwrap(ReplicaRoutingDataSource.class).getPools();
+        primary = new JdbcTemplate(pools.get(PRIMARY));
+        replica = new JdbcTemplate(pools.get(REPLICA));
+        var liquibase = new SpringLiquibase();
+        liquibase.setDataSource(pools.get(REPLICA));
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.afterPropertiesSet();
+        primary.update(INSERT_PRODUCT, "Primary");
+        replica.update(INSERT_PRODUCT, "Replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        primary.update("delete from product");
+        replica.update("delete from product");
+    }
+
+    @Test
+    @DisplayName("IT: find by id should read from replica")
+    void findByIdShouldReadFromReplica() {
+        assertThat(service.findById(1L).getName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: export all should read from replica")
+    void exportAllShouldReadFromReplica() {
+        assertThat(exportedName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: update should write to and read back from primary")
+    void updateShouldWriteToAndReadBackFromPrimary() {
+        var result = service.update(1L, createMergePatch(createObjectBuilder().add("unit", "hour").build()));
+        assertThat(result.getName()).isEqualTo("Primary");
+        assertThat(primary.queryForObject("select unit from product where id = 1", String.class)).isEqualTo("hour");
+        assertThat(replica.queryForObject("select unit from product where id = 1", String.class)).isEqualTo("day");
+    }
+
+    @Test
+    @DisplayName("IT: reads after a write in the same request should stay on primary")
+    void readsAfterAWriteInTheSameRequestShouldStayOnPrimary() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(exportedName()).isEqualTo("Replica");
+        service.update(1L, createMergePatch(createObjectBuilder().add("unit", "hour").build()));
+        assertThat(exportedName()).isEqualTo("Primary");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(exportedName()).isEqualTo("Replica");
+    }
+
+    @Test
+    @DisplayName("IT: a write after a read in the same request should go to primary")
+    void aWriteAfterAReadInTheSameRequestShouldGoToPrimary() throws Exception {
+        mvc.perform(post("/read-then-write/1").param("unit", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Primary"));
+        assertThat(primary.queryForObject("select unit from product where id = 1", String.class)).isEqualTo("hour");
+        assertThat(replica.queryForObject("select unit from product where id = 1", String.class)).isEqualTo("day");
+    }
+
+    @Test
+    @DisplayName("IT: health should be reported per pool")
+    void healthShouldBeReportedPerPool() {
+        assertThat(healthEndpoint.healthForPath("db", PRIMARY).getStatus()).isEqualTo(Status.UP);
+        assertThat(healthEndpoint.healthForPath("db", REPLICA).getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    @DisplayName("IT: connection pool metrics should be published per pool")
+    void connectionPoolMetricsShouldBePublishedPerPool() {
+        service.findById(1L);
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", PRIMARY).gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", REPLICA).gauge()).isNotNull();
+    }
+
+    private String exportedName() {
+        var names = new ArrayList<String>();
+        service.exportAll(product -> names.add(product.getName()));
+        return names.get(0);
+    }
+
+    @RestController
+    static class ReadThenWriteController {
+        private final ProductService service;
+
+        ReadThenWriteController(ProductService service) {
+            this.service = service;
+        }
+
+        @PostMapping("/read-then-write/{id}")
+        public ProductResponse readThenWrite(@PathVariable Long id, @RequestParam String unit) {
+            service.findById(id);
+            return service.update(id, createMergePatch(createObjectBuilder().add("unit", unit).build()));
+        }
+    }
+}
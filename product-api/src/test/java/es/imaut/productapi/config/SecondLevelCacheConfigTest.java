@@ -0,0 +1,117 @@
+package es.imaut.productapi.config;
+
+import es.imaut.productapi.RandomProductExtension;
+import es.imaut.productapi.model.Product;
+import es.imaut.productapi.repository.ProductRepository;
+import es.imaut.productapi.service.ProductService;
+import io.github.glytching.junit.extension.random.Random;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static es.imaut.productapi.config.SecondLevelCacheConfig.PRODUCT_REGION;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest(properties = { "second-level-cache.enabled=true" })
+@ExtendWith({ RandomProductExtension.class })
+@ActiveProfiles("test")
+class SecondLevelCacheConfigTest {
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("IT: find by id should load product from second-level cache")
+    void findByIdShouldLoadProductFromSecondLevelCache(@Random Product product) {
+        product.setId(null);
+        var id = repository.save(product).getId();
+        statistics.clear();
+        repository.findById(id).orElseThrow();
+        repository.findById(id).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics(PRODUCT_REGION).getHitCount()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("IT: find by id should not return stale product after patch")
+    void findByIdShouldNotReturnStaleProductAfterPatch(@Random Product product) {
+        product.setId(null);
+        var saved = repository.save(product);
+        repository.findById(saved.getId()).orElseThrow();
+        var result = service.update(saved.getId(), createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        assertThat(result.getName()).isEqualTo("Patched");
+        assertThat(result.getVersion()).isEqualTo(saved.getVersion() + 1);
+        assertThat(repository.findById(saved.getId()).orElseThrow().getName()).isEqualTo("Patched");
+    }
+
+    @Test
+    @DisplayName("IT: patch should keep other cached products")
+    void patchShouldKeepOtherCachedProducts(@Random Product product, @Random Product other) {
+        var patched = cached(product);
+        var kept = cached(other);
+        service.update(patched, createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        statistics.clear();
+        repository.findById(kept).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("IT: delete should keep other cached products")
+    void deleteShouldKeepOtherCachedProducts(@Random Product product, @Random Product other) {
+        var deleted = cached(product);
+        var kept = cached(other);
+        service.delete(deleted);
+        service.delete(Long.MAX_VALUE);
+        statistics.clear();
+        repository.findById(kept).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(repository.findById(deleted)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("IT: second-level cache metrics should be published per region")
+    void secondLevelCacheMetricsShouldBePublishedPerRegion(@Random Product product) {
+        product.setId(null);
+        var id = repository.save(product).getId();
+        repository.findById(id).orElseThrow();
+        var hits = meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", PRODUCT_REGION).tag("result", "hit").functionCounter();
+        assertThat(hits).isNotNull();
+        assertThat(hits.count()).isPositive();
+    }
+
+    private Long cached(Product product) {
+        product.setId(null);
+        var id = repository.save(product).getId();
+        repository.findById(id).orElseThrow();
+        return id;
+    }
+}
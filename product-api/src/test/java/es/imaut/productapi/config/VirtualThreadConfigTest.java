@@ -0,0 +1,64 @@
+package es.imaut.productapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = { "virtual-threads.enabled=true" })
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class VirtualThreadConfigTest {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private WebTestClient webClient;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private AtomicBoolean requestRanOnVirtualThread;
+
+    @Test
+    @DisplayName("IT: data source should be the connection pool itself")
+    void dataSourceShouldBeTheConnectionPoolItself() {
+        assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should return 200 OK on virtual threads")
+    void getProductsShouldReturn200OkOnVirtualThreads() {
+        webClient.get().uri("http://localhost:" + port + "/products").exchange()
+                .expectStatus().isOk();
+        assertThat(requestRanOnVirtualThread.get()).isTrue();
+    }
+
+    @TestConfiguration
+    static class RequestThreadConfig {
+        @Bean
+        AtomicBoolean requestRanOnVirtualThread() {
+            return new AtomicBoolean();
+        }
+
+        @Bean
+        Filter requestThreadFilter(AtomicBoolean requestRanOnVirtualThread) {
+            return (request, response, chain) -> {
+                requestRanOnVirtualThread.set(Thread.currentThread().isVirtual());
+                chain.doFilter(request, response);
+            };
+        }
+    }
+}
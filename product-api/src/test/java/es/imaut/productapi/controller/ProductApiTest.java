@@ -1,10 +1,14 @@
 package es.imaut.productapi.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.productapi.RandomProductExtension;
+import es.imaut.productapi.StatementRecorder;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductLookupResponse;
 import es.imaut.productapi.domain.ProductResponse;
 import io.github.glytching.junit.extension.random.Random;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,25 +16,38 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlGroup;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_METHOD;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 @AutoConfigureWebTestClient
+@Import(StatementRecorder.class)
 @ExtendWith({ RandomProductExtension.class })
 @ActiveProfiles("test")
 class ProductApiTest {
@@ -39,9 +56,21 @@ class ProductApiTest {
     private int port;
     @Autowired
     private WebTestClient webClient;
+    @Autowired
+    private StatementRecorder statementRecorder;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ObjectMapper objectMapper;
     private final Supplier<String> productsUrl = () -> url.apply(port) + "/products";
+    private final Supplier<String> productsBatchUrl = () -> url.apply(port) + "/products/batch";
     private final Supplier<String> productsIdUrl = () -> url.apply(port) + "/products/%d";
 
+    @AfterEach
+    void tearDown() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
     @Test
     @DisplayName("IT: GET /products should return 200 OK")
     void getProductsShouldReturn200Ok() {
@@ -49,6 +78,23 @@ class ProductApiTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    @DisplayName("IT: GET /products should be recorded in persistence metrics")
+    void getProductsShouldBeRecordedInPersistenceMetrics() {
+        webClient.get().uri(productsUrl.get()).exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hibernate.statements?tag=status:prepared").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/spring.data.repository.invocations"
+                        + "?tag=repository:ProductRepository&tag=state:SUCCESS").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/hikaricp.connections.acquire").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+    }
+
     @Test
     @DisplayName("IT: GET /products should return empty list")
     void getProductsShouldReturnEmptyList() {
@@ -68,9 +114,79 @@ class ProductApiTest {
                 .expectBodyList(ProductResponse.class)
                 .hasSize(3)
                 .contains(
-                        new ProductResponse(1L, "Europe IT Consultancy", "Software development", new BigDecimal("350.0000"), "EUR", "day"),
-                        new ProductResponse(2L, "UK IT Consultancy", "Software development", new BigDecimal("50.0000"), "GBP", "hour"),
-                        new ProductResponse(3L, "USA IT Consultancy", "Software development", new BigDecimal("2000.0000"), "USD", "week")
+                        new ProductResponse(1L, "Europe IT Consultancy", "Software development", new BigDecimal("350.0000"), "EUR", "day", 0L),
+                        new ProductResponse(2L, "UK IT Consultancy", "Software development", new BigDecimal("50.0000"), "GBP", "hour", 0L),
+                        new ProductResponse(3L, "USA IT Consultancy", "Software development", new BigDecimal("2000.0000"), "USD", "week", 0L)
+                );
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should return gzip encoded products when client accepts gzip")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsShouldReturnGzipEncodedProductsWhenClientAcceptsGzip() throws IOException, InterruptedException {
+        // The web test client decompresses transparently and drops the header, so a plain client is used here.
+        var response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(productsUrl.get())).header(ACCEPT_ENCODING, "gzip").build(),
+                BodyHandlers.ofInputStream());
+        assertThat(response.headers().firstValue(CONTENT_ENCODING)).contains("gzip");
+        try (var gzip = new GZIPInputStream(response.body())) {
+            assertThat(objectMapper.readValue(gzip, ProductResponse[].class)).hasSize(3);
+        }
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should return products updated from PATCH /products/{id}")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsShouldReturnProductsUpdatedFromPatchProductsId() {
+        webClient.get().uri(productsUrl.get()).exchange().expectStatus().isOk();
+        webClient.patch().uri(productsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(productsUrl.get()).exchange()
+                .expectBodyList(ProductResponse.class)
+                .value(products -> assertThat(products.stream().map(ProductResponse::getName).toList()).asList()
+                        .contains("Renamed").doesNotContain("Europe IT Consultancy"));
+    }
+
+    @Test
+    @DisplayName("IT: GET /products with ids should return products in request order and missing ids")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsWithIdsShouldReturnProductsInRequestOrderAndMissingIds() {
+        var response = webClient.get().uri(productsUrl.get() + "?ids=3,9,1").exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductLookupResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(response.products().stream().map(ProductResponse::getId).toList()).asList().containsExactly(3L, 1L);
+        assertThat(response.missing()).asList().containsExactly(9L);
+    }
+
+    @Test
+    @DisplayName("IT: GET /products as NDJSON should stream products from database")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsAsNdjsonShouldStreamProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsAsNdjsonShouldStreamProductsFromDatabase() {
+        webClient.get().uri(productsUrl.get()).accept(APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_NDJSON)
+                .expectBodyList(ProductResponse.class)
+                .hasSize(3)
+                .contains(
+                        new ProductResponse(1L, "Europe IT Consultancy", "Software development", new BigDecimal("350.0000"), "EUR", "day", 0L),
+                        new ProductResponse(2L, "UK IT Consultancy", "Software development", new BigDecimal("50.0000"), "GBP", "hour", 0L),
+                        new ProductResponse(3L, "USA IT Consultancy", "Software development", new BigDecimal("2000.0000"), "USD", "week", 0L)
                 );
     }
 
@@ -107,6 +223,61 @@ class ProductApiTest {
                 .hasFieldOrPropertyWithValue("name", "IT Consultancy");
     }
 
+    @Test
+    @DisplayName("IT: GET /products/{id} should be served from cache after first read")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsIdShouldReturnProductFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsIdShouldBeServedFromCacheAfterFirstRead() {
+        webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange().expectStatus().isOk();
+        webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange().expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/cache.gets?tag=cache:products&tag=result:hit").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("IT: GET /products/{id} should be recorded in single flight metrics")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsIdShouldReturnProductFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsIdShouldBeRecordedInSingleFlightMetrics() {
+        webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/single.flight.requests?tag=name:product&tag=result:loaded").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+        webClient.get().uri(url.apply(port) + "/actuator/metrics/single.flight.requests?tag=name:product&tag=result:coalesced").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.measurements[0].value").isNumber();
+    }
+
+    @Test
+    @DisplayName("IT: GET /products/{id} should return 304 Not Modified until product is patched")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsIdShouldReturn304NotModifiedUntilProductIsPatched.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsIdShouldReturn304NotModifiedUntilProductIsPatched() {
+        var eTag = webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        webClient.get().uri(productsIdUrl.get().formatted(1L)).ifNoneMatch(eTag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        webClient.patch().uri(productsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk();
+        webClient.get().uri(productsIdUrl.get().formatted(1L)).ifNoneMatch(eTag).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("ETag", value -> assertThat(value).isNotEqualTo(eTag))
+                .expectBody().jsonPath("$.name").isEqualTo("Renamed");
+    }
+
     @Test
     @DisplayName("IT: POST /products should return 200 OK")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
@@ -153,6 +324,24 @@ class ProductApiTest {
                         """);
     }
 
+    @Test
+    @DisplayName("IT: POST /products/batch should create valid products and report invalid ones")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    void postProductsBatchShouldCreateValidProductsAndReportInvalidOnes(@Random(type = CreateProductRequest.class) List<CreateProductRequest> requests) {
+        var body = new ArrayList<>(requests);
+        body.add(new CreateProductRequest());
+        webClient.post().uri(productsBatchUrl.get()).bodyValue(body).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.created.length()").isEqualTo(requests.size())
+                .jsonPath("$.created[0].name").isEqualTo(requests.get(0).getName())
+                .jsonPath("$.errors.length()").isEqualTo(4)
+                .jsonPath("$.errors[*].index").value(indexes -> assertThat(indexes).asList().containsOnly(requests.size()));
+        webClient.get().uri(productsUrl.get()).exchange()
+                .expectBodyList(ProductResponse.class)
+                .hasSize(requests.size());
+    }
+
     @Test
     @DisplayName("IT: POST /products should ignore unknown fields")
     @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
@@ -176,7 +365,7 @@ class ProductApiTest {
         var response = webClient.post().uri(productsUrl.get()).bodyValue(request).exchange()
                 .expectBody(ProductResponse.class)
                 .returnResult().getResponseBody();
-        assertThat(response).hasNoNullFieldsOrProperties()
+        assertThat(response).hasNoNullFieldsOrPropertiesExcept("version")
                 .hasFieldOrPropertyWithValue("name", request.getName());
     }
 
@@ -300,7 +489,7 @@ class ProductApiTest {
                 .hasSize(1)
                 .returnResult().getResponseBody();
         assertThat(response).asList()
-                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version")
                 .isEqualTo(List.of(request));
     }
 
@@ -376,4 +565,113 @@ class ProductApiTest {
                 .exchange()
                 .expectStatus().isNotFound();
     }
+
+    @Test
+    @DisplayName("IT: GET /products should issue at most 1 statement regardless of row count")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(productsUrl.get()).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /products should issue no statements once snapshot is built")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsShouldIssueNoStatementsOnceSnapshotIsBuilt() {
+        webClient.get().uri(productsUrl.get()).exchange().expectStatus().isOk();
+        assertStatementBudget(0, () -> webClient.get().uri(productsUrl.get()).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /products as NDJSON should issue at most 1 statement regardless of row count")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsAsNdjsonShouldStreamProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsAsNdjsonShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.get().uri(productsUrl.get()).accept(APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult());
+    }
+
+    @Test
+    @DisplayName("IT: GET /products/{id} should issue at most 1 statement and none once cached")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsIdShouldReturnProductFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsIdShouldIssueAtMost1StatementAndNoneOnceCached() {
+        assertStatementBudget(1, () -> webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+        assertStatementBudget(0, () -> webClient.get().uri(productsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: GET /products with ids should issue at most 1 statement and none once cached")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"getProductsShouldReturnProductsFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void getProductsWithIdsShouldIssueAtMost1StatementAndNoneOnceCached() {
+        webClient.get().uri(productsIdUrl.get().formatted(2L)).exchange().expectStatus().isOk();
+        assertStatementBudget(1, () -> webClient.get().uri(productsUrl.get() + "?ids=1,2,3").exchange()
+                .expectStatus().isOk());
+        assertStatementBudget(0, () -> webClient.get().uri(productsUrl.get() + "?ids=1,2,3").exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: POST /products should issue at most 3 statements")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    void postProductsShouldIssueAtMost3Statements(@Random CreateProductRequest request) {
+        assertStatementBudget(3, () -> webClient.post().uri(productsUrl.get()).bodyValue(request).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: POST /products/batch should issue at most 3 statements per JDBC batch")
+    @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    void postProductsBatchShouldIssueAtMost3StatementsPerJdbcBatch(@Random(type = CreateProductRequest.class, size = 120) List<CreateProductRequest> requests) {
+        // Each batch of 50 inserts may also need one id block, read and bumped in the id generator table.
+        var batches = (requests.size() + 49) / 50;
+        assertStatementBudget(3 * batches, () -> webClient.post().uri(productsBatchUrl.get()).bodyValue(requests).exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: PATCH /products/{id} should issue at most 2 statements")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"patchProductsIdShouldReturnProductFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void patchProductsIdShouldIssueAtMost2Statements() {
+        assertStatementBudget(2, () -> webClient.patch().uri(productsIdUrl.get().formatted(1L))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"Renamed\"}")
+                .exchange()
+                .expectStatus().isOk());
+    }
+
+    @Test
+    @DisplayName("IT: DELETE /products/{id} should issue at most 1 statement")
+    @SqlGroup({
+            @Sql(executionPhase = BEFORE_TEST_METHOD, scripts = {"deleteProductsIdShouldDeleteProductFromDatabase.sql"}),
+            @Sql(executionPhase = AFTER_TEST_METHOD, scripts = {"cleanProductTable.sql"})
+    })
+    void deleteProductsIdShouldIssueAtMost1Statement() {
+        assertStatementBudget(1, () -> webClient.delete().uri(productsIdUrl.get().formatted(1L)).exchange()
+                .expectStatus().isOk());
+    }
+
+    private void assertStatementBudget(int budget, Runnable call) {
+        assertThat(statementRecorder.record(call)).asList().hasSizeLessThanOrEqualTo(budget);
+    }
 }
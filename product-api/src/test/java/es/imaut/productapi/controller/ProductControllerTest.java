@@ -1,6 +1,10 @@
 package es.imaut.productapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductBatchResponse;
+import es.imaut.productapi.domain.ProductCatalogSnapshot;
+import es.imaut.productapi.domain.ProductLookupResponse;
 import es.imaut.productapi.domain.ProductResponse;
 import es.imaut.productapi.exception.ProductNotFoundException;
 import es.imaut.productapi.service.ProductService;
@@ -12,54 +16,123 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.json.JsonMergePatch;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.nCopies;
 import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.HttpStatus.OK;
 
 @ExtendWith({ MockitoExtension.class, RandomBeansExtension.class })
 class ProductControllerTest {
     @Mock
     private ProductService service;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
     @InjectMocks
     private ProductController controller;
 
     @Test
     @DisplayName("Find all should call service")
     void findAllShouldCallService() {
-        controller.findAll();
-        verify(service).findAll();
+        when(service.findAllSnapshot()).thenReturn(ProductCatalogSnapshot.of("[]".getBytes()));
+        controller.findAll(null);
+        verify(service).findAllSnapshot();
     }
 
     @Test
     @DisplayName("Find all should return 200 OK")
     void findAllShouldReturn200Ok() {
-        var result = controller.findAll();
+        when(service.findAllSnapshot()).thenReturn(ProductCatalogSnapshot.of("[]".getBytes()));
+        var result = controller.findAll(null);
         assertThat(result).hasFieldOrPropertyWithValue("status", OK);
     }
 
     @Test
     @DisplayName("Find all should return products from service")
-    void findAllShouldReturnProductsFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) {
-        when(service.findAll()).thenReturn(products);
-        var result = controller.findAll();
-        assertThat(result.getBody()).asList().hasSameSizeAs(products)
-                .usingRecursiveFieldByFieldElementComparator().isEqualTo(products);
+    void findAllShouldReturnProductsFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) throws IOException {
+        var snapshot = ProductCatalogSnapshot.of(objectMapper.writeValueAsBytes(products));
+        when(service.findAllSnapshot()).thenReturn(snapshot);
+        var result = controller.findAll(null);
+        assertThat(result.getBody()).isEqualTo(snapshot.json());
+        assertThat(result.getHeaders().getETag()).isEqualTo(snapshot.eTag());
+        assertThat(result.getHeaders().getFirst(CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    @DisplayName("Find all should return gzip snapshot when client accepts gzip")
+    void findAllShouldReturnGzipSnapshotWhenClientAcceptsGzip(@Random ProductResponse product) throws IOException {
+        var snapshot = ProductCatalogSnapshot.of(objectMapper.writeValueAsBytes(nCopies(100, product)));
+        when(service.findAllSnapshot()).thenReturn(snapshot);
+        var result = controller.findAll("deflate, gzip;q=0.8");
+        assertThat(result.getBody()).isEqualTo(snapshot.gzip());
+        assertThat(result.getHeaders().getFirst(CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(result.getHeaders().getVary()).asList().contains(ACCEPT_ENCODING);
+    }
+
+    @Test
+    @DisplayName("Find all should return identity snapshot when client refuses gzip")
+    void findAllShouldReturnIdentitySnapshotWhenClientRefusesGzip(@Random(type = ProductResponse.class) List<ProductResponse> products) throws IOException {
+        var snapshot = ProductCatalogSnapshot.of(objectMapper.writeValueAsBytes(products));
+        when(service.findAllSnapshot()).thenReturn(snapshot);
+        var result = controller.findAll("gzip;q=0, identity");
+        assertThat(result.getBody()).isEqualTo(snapshot.json());
+        assertThat(result.getHeaders().getFirst(CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    @DisplayName("Export all should return 200 OK")
+    void exportAllShouldReturn200Ok() {
+        var result = controller.exportAll();
+        assertThat(result).hasFieldOrPropertyWithValue("status", OK);
+    }
+
+    @Test
+    @DisplayName("Export all should write one JSON line per product from service")
+    @SuppressWarnings("unchecked")
+    void exportAllShouldWriteOneJsonLinePerProductFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) throws IOException {
+        doAnswer(invocation -> {
+            products.forEach(invocation.<Consumer<ProductResponse>>getArgument(0));
+            return null;
+        }).when(service).exportAll(any(Consumer.class));
+        var output = new ByteArrayOutputStream();
+        controller.exportAll().getBody().writeTo(output);
+        var lines = output.toString().split("\n");
+        assertThat(lines).hasSameSizeAs(products);
+        assertThat(objectMapper.readValue(lines[0], ProductResponse.class)).isEqualTo(products.get(0));
+        assertThat(output.toString()).endsWith("\n");
+    }
+
+    @Test
+    @DisplayName("Find all by id should return lookup from service")
+    void findAllByIdShouldReturnLookupFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) {
+        var lookup = ProductLookupResponse.builder().products(products).missing(List.of(-1L)).build();
+        when(service.findAllById(List.of(1L, -1L))).thenReturn(lookup);
+        var result = controller.findAllById(List.of(1L, -1L));
+        assertThat(result).hasFieldOrPropertyWithValue("status", OK);
+        assertThat(result.getBody()).isEqualTo(lookup);
     }
 
     @Test
     @DisplayName("Find by id should call service")
-    void findByIdShouldCallService() {
+    void findByIdShouldCallService(@Random ProductResponse response) {
+        when(service.findById(1L)).thenReturn(response);
         controller.findById(1L);
         verify(service).findById(1L);
     }
@@ -88,6 +161,14 @@ class ProductControllerTest {
         assertThat(result.getBody()).isEqualTo(response);
     }
 
+    @Test
+    @DisplayName("Find by id should return ETag from product version")
+    void findByIdShouldReturnETagFromProductVersion(@Random ProductResponse response) {
+        when(service.findById(response.getId())).thenReturn(response);
+        var result = controller.findById(response.getId());
+        assertThat(result.getHeaders().getETag()).isEqualTo("\"" + response.getVersion() + "\"");
+    }
+
     @Test
     @DisplayName("Create should call service")
     void createShouldCallService(@Random CreateProductRequest request) {
@@ -113,6 +194,24 @@ class ProductControllerTest {
                 .usingRecursiveComparison().isEqualTo(details);
     }
 
+    @Test
+    @DisplayName("Create all should call service")
+    void createAllShouldCallService(@Random(type = CreateProductRequest.class) List<CreateProductRequest> requests) {
+        controller.createAll(requests);
+        verify(service).createAll(requests);
+    }
+
+    @Test
+    @DisplayName("Create all should return batch result from service")
+    void createAllShouldReturnBatchResultFromService(@Random(type = CreateProductRequest.class) List<CreateProductRequest> requests,
+                                                     @Random(type = ProductResponse.class) List<ProductResponse> created) {
+        var response = ProductBatchResponse.builder().created(created).errors(List.of()).build();
+        when(service.createAll(requests)).thenReturn(response);
+        var result = controller.createAll(requests);
+        assertThat(result).hasFieldOrPropertyWithValue("status", OK);
+        assertThat(result.getBody()).isEqualTo(response);
+    }
+
     @Test
     @DisplayName("Update should call service")
     void updateShouldCallService() {
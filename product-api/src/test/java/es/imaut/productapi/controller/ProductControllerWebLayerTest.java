@@ -3,6 +3,9 @@ package es.imaut.productapi.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import es.imaut.productapi.RandomProductExtension;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductBatchResponse;
+import es.imaut.productapi.domain.ProductCatalogSnapshot;
+import es.imaut.productapi.domain.ProductLookupResponse;
 import es.imaut.productapi.domain.ProductResponse;
 import es.imaut.productapi.exception.ProductNotFoundException;
 import es.imaut.productapi.service.ProductService;
@@ -17,13 +20,28 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import javax.json.JsonMergePatch;
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.joining;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = { ProductController.class })
@@ -39,19 +57,90 @@ class ProductControllerWebLayerTest {
     @Test
     @DisplayName("GET /products should return 200 OK")
     void getProductsShouldReturn200Ok() throws Exception {
+        when(service.findAllSnapshot()).thenReturn(ProductCatalogSnapshot.of("[]".getBytes()));
         mvc.perform(get("/products"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON));
     }
 
     @Test
     @DisplayName("GET /products should return products from service")
     void getProductsShouldReturnProductsFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) throws Exception {
-        when(service.findAll()).thenReturn(products);
+        when(service.findAllSnapshot()).thenReturn(ProductCatalogSnapshot.of(mapper.writeValueAsBytes(products)));
         var result = mvc.perform(get("/products")).andReturn();
         assertThat(result.getResponse().getContentAsString())
                 .isEqualToIgnoringWhitespace(mapper.writeValueAsString(products));
     }
 
+    @Test
+    @DisplayName("GET /products should return gzip encoded products when client accepts gzip")
+    void getProductsShouldReturnGzipEncodedProductsWhenClientAcceptsGzip(@Random ProductResponse product) throws Exception {
+        var json = mapper.writeValueAsBytes(nCopies(100, product));
+        when(service.findAllSnapshot()).thenReturn(ProductCatalogSnapshot.of(json));
+        var result = mvc.perform(get("/products").header(ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(VARY, ACCEPT_ENCODING))
+                .andReturn();
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(json);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /products should return 304 Not Modified when snapshot is unchanged")
+    void getProductsShouldReturn304NotModifiedWhenSnapshotIsUnchanged(@Random(type = ProductResponse.class) List<ProductResponse> products) throws Exception {
+        var snapshot = ProductCatalogSnapshot.of(mapper.writeValueAsBytes(products));
+        when(service.findAllSnapshot()).thenReturn(snapshot);
+        mvc.perform(get("/products").header(IF_NONE_MATCH, snapshot.eTag()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /products with ids should return lookup from service")
+    void getProductsWithIdsShouldReturnLookupFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) throws Exception {
+        var lookup = ProductLookupResponse.builder().products(products).missing(List.of(4L)).build();
+        when(service.findAllById(List.of(3L, 1L, 4L))).thenReturn(lookup);
+        var result = mvc.perform(get("/products").param("ids", "3,1,4"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(lookup));
+    }
+
+    @Test
+    @DisplayName("GET /products with ids should return 400 Bad Request above maximum lookup size")
+    void getProductsWithIdsShouldReturn400BadRequestAboveMaximumLookupSize() throws Exception {
+        var ids = LongStream.rangeClosed(1, ProductController.MAX_LOOKUP_SIZE + 1).mapToObj(String::valueOf)
+                .collect(joining(","));
+        mvc.perform(get("/products").param("ids", ids))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /products with ids should return 400 Bad Request for invalid id")
+    void getProductsWithIdsShouldReturn400BadRequestForInvalidId() throws Exception {
+        mvc.perform(get("/products").param("ids", "1,two"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /products as NDJSON should stream products from service")
+    @SuppressWarnings("unchecked")
+    void getProductsAsNdjsonShouldStreamProductsFromService(@Random(type = ProductResponse.class) List<ProductResponse> products) throws Exception {
+        doAnswer(invocation -> {
+            products.forEach(invocation.<Consumer<ProductResponse>>getArgument(0));
+            return null;
+        }).when(service).exportAll(any(Consumer.class));
+        var async = mvc.perform(get("/products").accept(APPLICATION_NDJSON)).andReturn();
+        var result = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_NDJSON))
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualTo(products.stream().map(this::toJson).map(p -> p + "\n").reduce("", String::concat));
+    }
+
     @Test
     @DisplayName("GET /products/{id} should return 404 Not found")
     void getProductsIdShouldReturn404NotFound() throws Exception {
@@ -68,6 +157,25 @@ class ProductControllerWebLayerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /products/{id} should return ETag")
+    void getProductsIdShouldReturnETag(@Random ProductResponse response) throws Exception {
+        when(service.findById(response.getId())).thenReturn(response);
+        mvc.perform(get("/products/" + response.getId()))
+                .andExpect(header().string("ETag", "\"" + response.getVersion() + "\""));
+    }
+
+    @Test
+    @DisplayName("GET /products/{id} should return 304 Not Modified")
+    void getProductsIdShouldReturn304NotModified(@Random ProductResponse response) throws Exception {
+        when(service.findById(response.getId())).thenReturn(response);
+        var result = mvc.perform(get("/products/" + response.getId())
+                        .header(IF_NONE_MATCH, "\"" + response.getVersion() + "\""))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEmpty();
+    }
+
     @Test
     @DisplayName("GET /products/{id} should return product from service")
     void getProductsIdShouldReturnProductFromService(@Random ProductResponse response) throws Exception {
@@ -125,6 +233,28 @@ class ProductControllerWebLayerTest {
                 .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
     }
 
+    @Test
+    @DisplayName("POST /products/batch should return batch result from service")
+    void postProductsBatchShouldReturnBatchResultFromService(@Random CreateProductRequest body, @Random ProductResponse created) throws Exception {
+        var response = ProductBatchResponse.builder().created(List.of(created)).errors(List.of()).build();
+        when(service.createAll(List.of(body))).thenReturn(response);
+        var request = post("/products/batch")
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(List.of(body)));
+        var result = mvc.perform(request).andExpect(status().isOk()).andReturn();
+        assertThat(result.getResponse().getContentAsString())
+                .isEqualToIgnoringWhitespace(mapper.writeValueAsString(response));
+    }
+
+    @Test
+    @DisplayName("POST /products/batch should return 400 Bad Request when batch is too large")
+    void postProductsBatchShouldReturn400BadRequestWhenBatchIsTooLarge() throws Exception {
+        var request = post("/products/batch")
+                .contentType("application/json")
+                .content("[" + ",{}".repeat(ProductController.MAX_BATCH_SIZE).substring(1) + ",{}]");
+        mvc.perform(request).andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("PATCH /products/{id} should return 404 Not found")
     void patchProductsIdShouldReturn404NotFound() throws Exception {
@@ -195,4 +325,12 @@ class ProductControllerWebLayerTest {
         mvc.perform(delete("/products/1"))
                 .andExpect(status().isOk());
     }
+
+    private String toJson(ProductResponse product) {
+        try {
+            return mapper.writeValueAsString(product);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -1,82 +1,65 @@
 package es.imaut.productapi.mapper;
 
 import es.imaut.productapi.config.ObjectMapperConfig;
-import es.imaut.productapi.model.Product;
-import io.github.glytching.junit.extension.random.Random;
-import io.github.glytching.junit.extension.random.RandomBeansExtension;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
 import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
-@SpringBootTest(classes = { ProductMapperImpl.class })
+@SpringBootTest(classes = { ProductMapperImpl.class, JsonMergePatcher.class })
 @Import({ ObjectMapperConfig.class })
-@ExtendWith({ RandomBeansExtension.class })
 class ProductMapperTest {
     @Autowired
     private ProductMapper mapper;
 
     @Test
-    @DisplayName("Merge should apply new value")
-    void mergeShouldApplyNewValue() {
-        var patch = createMergePatch(createObjectBuilder()
-                .add("name", "Name")
-                .build());
-        assertThat(mapper.merge(patch, new Product()))
-                .hasFieldOrPropertyWithValue("name", "Name");
-    }
-
-    @Test
-    @DisplayName("Merge should apply update value")
-    void mergeShouldApplyUpdateValue(@Random Product product) {
-        var id = product.getId();
+    @DisplayName("Changes should return touched values")
+    void changesShouldReturnTouchedValues() {
         var patch = createMergePatch(createObjectBuilder()
                 .add("name", "Name")
                 .build());
-        assertThat(mapper.merge(patch, product))
-                .hasFieldOrPropertyWithValue("id", id)
-                .hasFieldOrPropertyWithValue("name", "Name");
+        assertThat(mapper.changes(patch)).isEqualTo(Map.of("name", "Name"));
     }
 
     @Test
-    @DisplayName("Merge should not apply anything")
-    void mergeShouldNotApplyAnything(@Random Product product) {
-        var id = product.getId();
-        var name = product.getName();
+    @DisplayName("Changes should not return anything")
+    void changesShouldNotReturnAnything() {
         var patch = createMergePatch(createObjectBuilder().build());
-        assertThat(mapper.merge(patch, product))
-                .hasFieldOrPropertyWithValue("id", id)
-                .hasFieldOrPropertyWithValue("name", name);
+        assertThat(mapper.changes(patch)).isEqualTo(Map.of());
     }
 
     @Test
-    @DisplayName("Merge should apply null value")
-    void mergeShouldApplyNullValue(@Random Product product) {
-        var id = product.getId();
+    @DisplayName("Changes should return null value")
+    void changesShouldReturnNullValue() {
         var patch = createMergePatch(createObjectBuilder()
                 .addNull("name")
                 .build());
-        assertThat(mapper.merge(patch, product))
-                .hasFieldOrPropertyWithValue("id", id)
-                .hasFieldOrPropertyWithValue("name", null);
+        assertThat(mapper.changes(patch)).isEqualTo(singletonMap("name", null));
     }
 
     @Test
-    @DisplayName("Merge should ignore unknown fields")
-    void mergeShouldIgnoreUnknownFields(@Random Product product) {
-        var id = product.getId();
-        var name = product.getName();
+    @DisplayName("Changes should ignore unknown fields")
+    void changesShouldIgnoreUnknownFields() {
         var patch = createMergePatch(createObjectBuilder()
                 .add("ignored", "field")
                 .build());
-        assertThat(mapper.merge(patch, product))
-                .hasFieldOrPropertyWithValue("id", id)
-                .hasFieldOrPropertyWithValue("name", name);
+        assertThat(mapper.changes(patch)).isEqualTo(Map.of());
+    }
+
+    @Test
+    @DisplayName("Changes should not return id")
+    void changesShouldNotReturnId() {
+        var patch = createMergePatch(createObjectBuilder()
+                .add("id", 2)
+                .build());
+        assertThat(mapper.changes(patch)).isEqualTo(Map.of());
     }
 }
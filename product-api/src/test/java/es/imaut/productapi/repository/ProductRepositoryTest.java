@@ -3,6 +3,7 @@ package es.imaut.productapi.repository;
 import es.imaut.productapi.RandomProductExtension;
 import es.imaut.productapi.model.Product;
 import io.github.glytching.junit.extension.random.Random;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +13,9 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
@@ -44,4 +47,96 @@ class ProductRepositoryTest {
                 .asList().hasSameSizeAs(products)
                 .containsExactlyInAnyOrderElementsOf(products);
     }
+
+    @Test
+    @DisplayName("Insert all should assign ids in order")
+    void insertAllShouldAssignIdsInOrder(@Random(type = Product.class) List<Product> products) {
+        products.forEach(p -> p.setId(null));
+        var result = repository.insertAll(products);
+        assertThat(result).asList().containsExactlyElementsOf(products)
+                .allSatisfy(p -> assertThat(((Product) p).getId()).isNotNull());
+        assertThat(result.stream().map(Product::getId).toList()).asList().isSorted();
+        assertThat(repository.findAll()).asList().containsExactlyInAnyOrderElementsOf(products);
+    }
+
+    @Test
+    @DisplayName("Insert all should send inserts in JDBC batches")
+    void insertAllShouldSendInsertsInJdbcBatches(@Random(type = Product.class, size = 120) List<Product> products) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        products.forEach(p -> p.setId(null));
+        statistics.clear();
+        repository.insertAll(products);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(products.size());
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(products.size() / 10);
+    }
+
+    @Test
+    @DisplayName("Stream all should return all products ordered by id")
+    void streamAllShouldReturnAllProductsOrderedById(@Random(type = Product.class) List<Product> products) {
+        products.stream().peek(p -> p.setId(null)).forEach(entityManager::persist);
+        try (var result = repository.streamAll()) {
+            assertThat(result.toList()).asList()
+                    .containsExactlyElementsOf(products.stream().sorted(Comparator.comparing(Product::getId)).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Patch should update only given columns and bump version in a single statement")
+    void patchShouldUpdateOnlyGivenColumnsAndBumpVersionInASingleStatement(@Random Product product) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        product.setId(null);
+        var id = entityManager.persistFlushFind(product).getId();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.patch(id, Map.of("name", "Patched", "unit", "kg"));
+        assertThat(result).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        var patched = entityManager.find(Product.class, id);
+        assertThat(patched.getName()).isEqualTo("Patched");
+        assertThat(patched.getUnit()).isEqualTo("kg");
+        assertThat(patched.getNetPrice()).isEqualByComparingTo(product.getNetPrice());
+        assertThat(patched.getVersion()).isEqualTo(product.getVersion() + 1);
+    }
+
+    @Test
+    @DisplayName("Patch should return zero when product does not exist")
+    void patchShouldReturnZeroWhenProductDoesNotExist() {
+        var result = repository.patch(1L, Map.of("name", "Patched"));
+        assertThat(result).isZero();
+    }
+
+    @Test
+    @DisplayName("Stream all ids should return the id of every product")
+    void streamAllIdsShouldReturnTheIdOfEveryProduct(@Random(type = Product.class) List<Product> products) {
+        products.stream().peek(p -> p.setId(null)).forEach(entityManager::persist);
+        try (var ids = repository.streamAllIds()) {
+            assertThat(ids.toList()).asList()
+                    .containsExactlyInAnyOrderElementsOf(products.stream().map(Product::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Purge by id should delete product in a single statement")
+    void purgeByIdShouldDeleteProductInASingleStatement(@Random Product product) {
+        var statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        product.setId(null);
+        var id = entityManager.persistFlushFind(product).getId();
+        entityManager.clear();
+        statistics.clear();
+        var result = repository.purgeById(id);
+        assertThat(result).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(entityManager.find(Product.class, id)).isNull();
+    }
+
+    @Test
+    @DisplayName("Purge by id should return zero when product does not exist")
+    void purgeByIdShouldReturnZeroWhenProductDoesNotExist() {
+        var result = repository.purgeById(1L);
+        assertThat(result).isZero();
+    }
 }
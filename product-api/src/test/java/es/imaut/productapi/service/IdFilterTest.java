@@ -0,0 +1,106 @@
+package es.imaut.productapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class IdFilterTest {
+    private static final int IDS = 100_000;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdFilter filter = new IdFilter("test", 0.01, 0, meterRegistry);
+
+    @Test
+    @DisplayName("Might contain should let every id through until built")
+    void mightContainShouldLetEveryIdThroughUntilBuilt() {
+        assertThat(filter.mightContain(1L)).isTrue();
+        assertThat(filter.expectedFalsePositiveRate()).isNaN();
+        assertThat(lookups("absent")).isZero();
+    }
+
+    @Test
+    @DisplayName("Might contain should never reject a built or added id")
+    void mightContainShouldNeverRejectABuiltOrAddedId() {
+        filter.rebuild(IDS, () -> ids(1, IDS));
+        filter.add(IDS + 1L);
+        assertThat(LongStream.rangeClosed(1, IDS + 1L).allMatch(filter::mightContain)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Might contain should reject most absent ids")
+    void mightContainShouldRejectMostAbsentIds() {
+        filter.rebuild(IDS, () -> ids(1, IDS).map(id -> 2 * id));
+        var passed = LongStream.rangeClosed(1, IDS).map(id -> 2 * id - 1).filter(filter::mightContain).count();
+        assertThat(passed).isLessThan(IDS / 100);
+        assertThat(lookups("absent")).isEqualTo((double) (IDS - passed));
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.0, 0.01);
+    }
+
+    @Test
+    @DisplayName("Might contain should let through ids above the highest rebuilt id less recent ids")
+    void mightContainShouldLetThroughIdsAboveTheHighestRebuiltIdLessRecentIds() {
+        var filter = new IdFilter("recent", 0.01, 100, meterRegistry);
+        filter.rebuild(IDS, () -> ids(1, IDS).map(id -> 2 * id));
+        assertThat(LongStream.rangeClosed(2L * IDS - 99, 2L * IDS + 100).allMatch(filter::mightContain)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Rebuild should drop ids missing from the new id stream")
+    void rebuildShouldDropIdsMissingFromTheNewIdStream() {
+        filter.rebuild(2, () -> Stream.of(1L, 3L));
+        filter.rebuild(2, () -> Stream.of(2L, 3L));
+        assertThat(filter.mightContain(1L)).isFalse();
+        assertThat(filter.mightContain(2L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Rebuild should keep ids added while it runs")
+    void rebuildShouldKeepIdsAddedWhileItRuns() {
+        filter.rebuild(2, () -> Stream.of(1000L, 2000L).peek(id -> filter.add(id + 100)));
+        assertThat(filter.mightContain(1100L)).isTrue();
+        assertThat(filter.mightContain(2100L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Rebuild should keep ids added before the id stream is opened")
+    void rebuildShouldKeepIdsAddedBeforeTheIdStreamIsOpened() {
+        filter.rebuild(2, () -> {
+            filter.add(1100L);
+            return Stream.of(1000L, 2000L);
+        });
+        assertThat(filter.mightContain(1100L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Rebuild should close the id stream")
+    void rebuildShouldCloseTheIdStream() {
+        var closed = new AtomicBoolean();
+        filter.rebuild(1, () -> Stream.of(1L).onClose(() -> closed.set(true)));
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Record lookup should count present and false positive lookups once built")
+    void recordLookupShouldCountPresentAndFalsePositiveLookupsOnceBuilt() {
+        filter.recordLookup(false);
+        filter.rebuild(1, () -> Stream.of(1L));
+        filter.recordLookup(true);
+        filter.recordLookup(false);
+        filter.recordLookup(false);
+        assertThat(lookups("present")).isEqualTo(1.0);
+        assertThat(lookups("false_positive")).isEqualTo(2.0);
+    }
+
+    private static Stream<Long> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("id.filter.lookups").tag("name", "test").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,198 @@
+package es.imaut.productapi.service;
+
+import es.imaut.productapi.RandomProductExtension;
+import es.imaut.productapi.config.CacheConfig;
+import es.imaut.productapi.config.IdFilterConfig;
+import es.imaut.productapi.config.SingleFlightConfig;
+import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.exception.ProductNotFoundException;
+import es.imaut.productapi.mapper.ProductDetailsMapperImpl;
+import es.imaut.productapi.mapper.ProductMapper;
+import es.imaut.productapi.model.Product;
+import es.imaut.productapi.repository.ProductRepository;
+import io.github.glytching.junit.extension.random.Random;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static es.imaut.productapi.config.CacheConfig.CATALOG_CACHE;
+import static es.imaut.productapi.config.CacheConfig.PRODUCTS_CACHE;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static javax.json.Json.createMergePatch;
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = { ProductService.class, ProductDetailsMapperImpl.class, CacheConfig.class,
+        SingleFlightConfig.class, IdFilterConfig.class, SimpleMeterRegistry.class })
+@ImportAutoConfiguration({ CacheAutoConfiguration.class, JacksonAutoConfiguration.class })
+@ExtendWith({ RandomProductExtension.class })
+class ProductServiceCacheTest {
+    @MockBean
+    private ProductRepository repository;
+    @MockBean
+    private ProductMapper productMapper;
+    @MockBean
+    private EntityManager entityManager;
+    @MockBean
+    private Validator validator;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ProductService service;
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.getCache(PRODUCTS_CACHE).clear();
+        cacheManager.getCache(CATALOG_CACHE).clear();
+    }
+
+    @Test
+    @DisplayName("Find by id should read repository once for repeated lookups")
+    void findByIdShouldReadRepositoryOnceForRepeatedLookups(@Random Product product) {
+        when(repository.findById(product.getId())).thenReturn(of(product));
+        var first = service.findById(product.getId());
+        var second = service.findById(product.getId());
+        assertThat(second).isEqualTo(first);
+        verify(repository, times(1)).findById(product.getId());
+    }
+
+    @Test
+    @DisplayName("Find by id should not cache not found")
+    void findByIdShouldNotCacheNotFound() {
+        when(repository.findById(1L)).thenReturn(empty());
+        assertThatThrownBy(() -> service.findById(1L)).isInstanceOf(ProductNotFoundException.class);
+        assertThatThrownBy(() -> service.findById(1L)).isInstanceOf(ProductNotFoundException.class);
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Update should invalidate cached product")
+    void updateShouldInvalidateCachedProduct(@Random Product product) {
+        when(repository.findById(product.getId())).thenReturn(of(product));
+        when(productMapper.changes(any())).thenReturn(Map.of("name", "Patched"));
+        when(repository.patch(product.getId(), Map.of("name", "Patched"))).thenReturn(1);
+        service.findById(product.getId());
+        service.update(product.getId(), createMergePatch(createObjectBuilder().add("name", "Patched").build()));
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Find by id should not cache a product read before a concurrent update")
+    void findByIdShouldNotCacheAProductReadBeforeAConcurrentUpdate(@Random Product product) {
+        var updated = new AtomicBoolean();
+        when(repository.findById(product.getId())).thenAnswer(invocation -> {
+            var before = of(product);
+            if (!updated.getAndSet(true)) {
+                service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
+            }
+            return before;
+        });
+        service.findById(product.getId());
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Find by id should not cache a product read before a concurrent delete")
+    void findByIdShouldNotCacheAProductReadBeforeAConcurrentDelete(@Random Product product) {
+        when(repository.findById(product.getId())).thenAnswer(invocation -> {
+            var before = of(product);
+            service.delete(product.getId());
+            return before;
+        });
+        service.findById(product.getId());
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Find all by id should not cache a product read before a concurrent delete")
+    void findAllByIdShouldNotCacheAProductReadBeforeAConcurrentDelete(@Random Product product) {
+        when(repository.findAllById(List.of(product.getId()))).thenAnswer(invocation -> {
+            var before = List.of(product);
+            service.delete(product.getId());
+            return before;
+        });
+        service.findAllById(List.of(product.getId()));
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Delete should invalidate cached product")
+    void deleteShouldInvalidateCachedProduct(@Random Product product) {
+        when(repository.findById(product.getId())).thenReturn(of(product));
+        service.findById(product.getId());
+        service.delete(product.getId());
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Find all snapshot should read repository once for repeated reads")
+    void findAllSnapshotShouldReadRepositoryOnceForRepeatedReads(@Random Product product) {
+        when(repository.findAll()).thenReturn(List.of(product));
+        var first = service.findAllSnapshot();
+        var second = service.findAllSnapshot();
+        assertThat(second).isSameAs(first);
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Find all snapshot should not cache a snapshot read before a concurrent write")
+    void findAllSnapshotShouldNotCacheASnapshotReadBeforeAConcurrentWrite(@Random Product product,
+                                                                        @Random CreateProductRequest request) {
+        when(productMapper.from(request)).thenReturn(product);
+        when(repository.save(product)).thenReturn(product);
+        when(repository.findAll()).thenAnswer(invocation -> {
+            var before = List.<Product>of();
+            service.create(request);
+            return before;
+        });
+        service.findAllSnapshot();
+        assertThat(cacheManager.getCache(CATALOG_CACHE).get(SimpleKey.EMPTY)).isNull();
+    }
+
+    @Test
+    @DisplayName("Create should invalidate catalog snapshot")
+    void createShouldInvalidateCatalogSnapshot(@Random Product product, @Random CreateProductRequest request) {
+        when(productMapper.from(request)).thenReturn(product);
+        when(repository.save(product)).thenReturn(product);
+        service.findAllSnapshot();
+        service.create(request);
+        assertThat(cacheManager.getCache(CATALOG_CACHE).get(SimpleKey.EMPTY)).isNull();
+    }
+
+    @Test
+    @DisplayName("Update should invalidate catalog snapshot")
+    void updateShouldInvalidateCatalogSnapshot(@Random Product product) {
+        when(repository.findById(product.getId())).thenReturn(of(product));
+        service.findAllSnapshot();
+        service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
+        assertThat(cacheManager.getCache(CATALOG_CACHE).get(SimpleKey.EMPTY)).isNull();
+    }
+
+    @Test
+    @DisplayName("Delete should invalidate catalog snapshot")
+    void deleteShouldInvalidateCatalogSnapshot(@Random Product product) {
+        service.findAllSnapshot();
+        service.delete(product.getId());
+        assertThat(cacheManager.getCache(CATALOG_CACHE).get(SimpleKey.EMPTY)).isNull();
+    }
+}
@@ -1,6 +1,10 @@
 package es.imaut.productapi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.imaut.productapi.RandomProductExtension;
 import es.imaut.productapi.domain.CreateProductRequest;
+import es.imaut.productapi.domain.ProductBatchResponse.ProductBatchError;
+import es.imaut.productapi.domain.ProductResponse;
 import es.imaut.productapi.exception.ProductNotFoundException;
 import es.imaut.productapi.mapper.ProductDetailsMapper;
 import es.imaut.productapi.mapper.ProductDetailsMapperImpl;
@@ -9,7 +13,10 @@ import es.imaut.productapi.mapper.ProductMapperImpl;
 import es.imaut.productapi.model.Product;
 import es.imaut.productapi.repository.ProductRepository;
 import io.github.glytching.junit.extension.random.Random;
-import io.github.glytching.junit.extension.random.RandomBeansExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,12 +24,30 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 
 import javax.json.JsonMergePatch;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static es.imaut.productapi.config.CacheConfig.CATALOG_CACHE;
+import static es.imaut.productapi.config.CacheConfig.PRODUCTS_CACHE;
+import static jakarta.validation.Validation.buildDefaultValidatorFactory;
+import static java.util.Arrays.asList;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static javax.json.Json.createMergePatch;
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -30,7 +55,7 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-@ExtendWith({ MockitoExtension.class, RandomBeansExtension.class })
+@ExtendWith({ MockitoExtension.class, RandomProductExtension.class })
 class ProductServiceTest {
     @Mock
     private ProductRepository repository;
@@ -38,34 +63,115 @@ class ProductServiceTest {
     private ProductMapper productMapper = new ProductMapperImpl();
     @Spy
     private ProductDetailsMapper detailsMapper = new ProductDetailsMapperImpl();
+    @Mock
+    private EntityManager entityManager;
+    @Spy
+    private Validator validator = buildDefaultValidatorFactory().getValidator();
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(PRODUCTS_CACHE, CATALOG_CACHE);
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+    @Spy
+    private SingleFlight<Long, ProductResponse> singleFlight = new SingleFlight<>("product", new SimpleMeterRegistry());
+    @Spy
+    private IdFilter idFilter = new IdFilter("product", 0.01, 0, new SimpleMeterRegistry());
+    @Spy
+    private CacheGenerations cacheGenerations = new CacheGenerations(cacheManager, 16);
     @InjectMocks
     private ProductService service;
 
     @Test
-    @DisplayName("Find all should call repository")
-    void findAllShouldCallRepository() {
-        service.findAll();
-        verify(repository).findAll();
+    @DisplayName("Find all snapshot should hold products mapped from repository as JSON and gzip")
+    void findAllSnapshotShouldHoldProductsMappedFromRepositoryAsJsonAndGzip(@Random(type = Product.class) List<Product> products) throws IOException {
+        when(repository.findAll()).thenReturn(products);
+        var result = service.findAllSnapshot();
+        var expected = objectMapper.writeValueAsBytes(products.stream().map(detailsMapper::from).toList());
+        assertThat(result.json()).isEqualTo(expected);
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(result.gzip()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(expected);
+        }
     }
 
     @Test
-    @DisplayName("Find all should return empty list")
-    void findAllShouldReturnEmptyList() {
-        var result = service.findAll();
-        assertThat(result).isNotNull()
-                .asList().isEmpty();
+    @DisplayName("Find all snapshot should be tagged by content")
+    void findAllSnapshotShouldBeTaggedByContent(@Random(type = Product.class) List<Product> products) {
+        when(repository.findAll()).thenReturn(products);
+        var first = service.findAllSnapshot();
+        cacheManager.getCache(CATALOG_CACHE).clear();
+        assertThat(service.findAllSnapshot().eTag()).isEqualTo(first.eTag());
+        cacheManager.getCache(CATALOG_CACHE).clear();
+        when(repository.findAll()).thenReturn(products.subList(1, products.size()));
+        assertThat(service.findAllSnapshot().eTag()).isNotEqualTo(first.eTag());
     }
 
     @Test
-    @DisplayName("Find all should return list mapped from repository")
-    void findAllShouldReturnListMappedFromRepository(@Random(type = Product.class) List<Product> products) {
-        when(repository.findAll()).thenReturn(products);
-        var result = service.findAll();
-        assertThat(result).isNotNull()
-                .asList().hasSameSizeAs(products)
+    @DisplayName("Export all should stream products mapped from repository")
+    void exportAllShouldStreamProductsMappedFromRepository(@Random(type = Product.class) List<Product> products) {
+        when(repository.streamAll()).thenReturn(products.stream());
+        var result = new ArrayList<ProductResponse>();
+        service.exportAll(result::add);
+        assertThat(result).asList().hasSameSizeAs(products)
                 .usingRecursiveFieldByFieldElementComparator().isEqualTo(products);
     }
 
+    @Test
+    @DisplayName("Export all should detach every exported product")
+    void exportAllShouldDetachEveryExportedProduct(@Random(type = Product.class) List<Product> products) {
+        when(repository.streamAll()).thenReturn(products.stream());
+        service.exportAll(p -> {});
+        products.forEach(p -> verify(entityManager).detach(p));
+    }
+
+    @Test
+    @DisplayName("Find all by id should read only cache misses from repository")
+    void findAllByIdShouldReadOnlyCacheMissesFromRepository(@Random ProductResponse cached, @Random Product product) {
+        cacheManager.getCache(PRODUCTS_CACHE).put(cached.getId(), cached);
+        when(repository.findAllById(List.of(product.getId()))).thenReturn(List.of(product));
+        service.findAllById(List.of(cached.getId(), product.getId()));
+        verify(repository).findAllById(List.of(product.getId()));
+    }
+
+    @Test
+    @DisplayName("Find all by id should not call repository when every id is cached")
+    void findAllByIdShouldNotCallRepositoryWhenEveryIdIsCached(@Random ProductResponse cached) {
+        cacheManager.getCache(PRODUCTS_CACHE).put(cached.getId(), cached);
+        var result = service.findAllById(List.of(cached.getId()));
+        verify(repository, never()).findAllById(any());
+        assertThat(result.products()).asList().containsExactly(cached);
+    }
+
+    @Test
+    @DisplayName("Find all by id should return products in request order and report missing ids")
+    void findAllByIdShouldReturnProductsInRequestOrderAndReportMissingIds(@Random(type = Product.class) List<Product> products) {
+        var ids = new ArrayList<>(products.stream().map(Product::getId).toList());
+        Collections.reverse(ids);
+        ids.add(1, ids.get(0));
+        ids.add(-1L);
+        when(repository.findAllById(any())).thenReturn(products);
+        var result = service.findAllById(ids);
+        assertThat(result.products().stream().map(ProductResponse::getId).toList()).asList()
+                .containsExactlyElementsOf(ids.stream().distinct().filter(id -> id != -1L).toList());
+        assertThat(result.missing()).asList().containsExactly(-1L);
+    }
+
+    @Test
+    @DisplayName("Find all by id should report ids absent from filter as missing without repository")
+    void findAllByIdShouldReportIdsAbsentFromFilterAsMissingWithoutRepository() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        var result = service.findAllById(List.of(2L));
+        verifyNoInteractions(repository);
+        assertThat(result.missing()).asList().containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Find all by id should cache products read from repository")
+    void findAllByIdShouldCacheProductsReadFromRepository(@Random Product product) {
+        when(repository.findAllById(List.of(product.getId()))).thenReturn(List.of(product));
+        service.findAllById(List.of(product.getId()));
+        assertThat(cacheManager.getCache(PRODUCTS_CACHE).get(product.getId(), ProductResponse.class))
+                .usingRecursiveComparison().isEqualTo(product);
+    }
+
     @Test
     @DisplayName("Find by id should call repository")
     void findByIdShouldCallRepository(@Random Product product) {
@@ -82,6 +188,34 @@ class ProductServiceTest {
                 .isInstanceOf(ProductNotFoundException.class);
     }
 
+    @Test
+    @DisplayName("Find by id should throw not found exception without repository for ids absent from filter")
+    void findByIdShouldThrowNotFoundExceptionWithoutRepositoryForIdsAbsentFromFilter() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        assertThatThrownBy(() -> service.findById(2L))
+                .isInstanceOf(ProductNotFoundException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Find by id should call repository for ids above the highest rebuilt id")
+    void findByIdShouldCallRepositoryForIdsAboveTheHighestRebuiltId(@Random Product product) {
+        idFilter.rebuild(1, () -> Stream.of(1L));
+        when(repository.findById(2L)).thenReturn(of(product));
+        service.findById(2L);
+        verify(repository).findById(2L);
+    }
+
+    @Test
+    @DisplayName("Find by id should record false positive when filtered id is not found")
+    void findByIdShouldRecordFalsePositiveWhenFilteredIdIsNotFound() {
+        idFilter.rebuild(2, () -> Stream.of(1L, 3L));
+        when(repository.findById(1L)).thenReturn(empty());
+        assertThatThrownBy(() -> service.findById(1L))
+                .isInstanceOf(ProductNotFoundException.class);
+        verify(idFilter).recordLookup(false);
+    }
+
     @Test
     @DisplayName("Find by id should return product from repository")
     void findAllShouldReturnProductFromRepository(@Random Product product) {
@@ -90,16 +224,55 @@ class ProductServiceTest {
         assertThat(result).usingRecursiveComparison().isEqualTo(product);
     }
 
+    @Test
+    @DisplayName("Find by id should share one repository read between concurrent callers")
+    void findByIdShouldShareOneRepositoryReadBetweenConcurrentCallers(@Random Product product) throws Exception {
+        var release = new CountDownLatch(1);
+        when(repository.findById(product.getId())).thenAnswer(invocation -> {
+            release.await(5, SECONDS);
+            return of(product);
+        });
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = IntStream.range(0, 4).mapToObj(i -> executor.submit(() -> service.findById(product.getId()))).toList();
+            var deadline = System.nanoTime() + SECONDS.toNanos(5);
+            while (singleFlight.coalescedCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (var result : results) {
+                assertThat(result.get(5, SECONDS)).usingRecursiveComparison().isEqualTo(product);
+            }
+            verify(repository, times(1)).findById(product.getId());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     @DisplayName("Create should call repository")
     void createShouldCallRepository(@Random CreateProductRequest request, @Random Product product) {
         product.setName(request.getName());
         when(productMapper.from(request))
                 .thenReturn(product);
+        when(repository.save(product))
+                .thenReturn(product);
         service.create(request);
         verify(repository).save(argThat(c -> c.getName().equals(request.getName())));
     }
 
+    @Test
+    @DisplayName("Create should add created id to filter")
+    void createShouldAddCreatedIdToFilter(@Random CreateProductRequest request, @Random Product product) {
+        idFilter.rebuild(1, () -> Stream.of(Long.MAX_VALUE));
+        when(productMapper.from(request))
+                .thenReturn(product);
+        when(repository.save(product))
+                .thenReturn(product);
+        service.create(request);
+        assertThat(idFilter.mightContain(product.getId())).isTrue();
+    }
+
     @Test
     @DisplayName("Create should return created product")
     void createShouldReturnCreatedProduct(@Random CreateProductRequest request, @Random Product product) {
@@ -113,67 +286,139 @@ class ProductServiceTest {
     }
 
     @Test
-    @DisplayName("Update should call repository to find product by id")
-    void updateShouldCallRepositoryToFindProductById(@Random Product product) {
+    @DisplayName("Create all should insert valid requests in one batch")
+    void createAllShouldInsertValidRequestsInOneBatch(@Random(type = CreateProductRequest.class) List<CreateProductRequest> requests) {
+        when(productMapper.from(any(CreateProductRequest.class)))
+                .thenAnswer(i -> Product.builder().name(i.<CreateProductRequest>getArgument(0).getName()).build());
+        service.createAll(requests);
+        verify(repository).insertAll(argThat(p -> p.size() == requests.size()));
+    }
+
+    @Test
+    @DisplayName("Create all should return created products")
+    void createAllShouldReturnCreatedProducts(@Random CreateProductRequest request, @Random Product product) {
+        when(productMapper.from(request)).thenReturn(product);
+        when(repository.insertAll(List.of(product))).thenReturn(List.of(product));
+        var result = service.createAll(List.of(request));
+        assertThat(result.created()).asList().singleElement()
+                .usingRecursiveComparison().isEqualTo(product);
+        assertThat(result.errors()).asList().isEmpty();
+    }
+
+    @Test
+    @DisplayName("Create all should add created ids to filter")
+    void createAllShouldAddCreatedIdsToFilter(@Random CreateProductRequest request, @Random Product product) {
+        idFilter.rebuild(1, () -> Stream.of(Long.MAX_VALUE));
+        when(productMapper.from(request)).thenReturn(product);
+        when(repository.insertAll(List.of(product))).thenReturn(List.of(product));
+        service.createAll(List.of(request));
+        assertThat(idFilter.mightContain(product.getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Create all should report invalid requests by index")
+    void createAllShouldReportInvalidRequestsByIndex(@Random CreateProductRequest valid, @Random Product product) {
+        var invalid = new CreateProductRequest();
+        invalid.setName(valid.getName());
+        invalid.setNetPrice(valid.getNetPrice());
+        invalid.setCurrency("EURO");
+        invalid.setUnit(valid.getUnit());
+        when(productMapper.from(valid)).thenReturn(product);
+        var result = service.createAll(asList(valid, invalid, null));
+        verify(repository).insertAll(List.of(product));
+        assertThat(result.errors()).asList().containsExactly(
+                ProductBatchError.builder().index(1).field("currency").rejectedValue("EURO").code("Size")
+                        .defaultMessage("size must be between 0 and 3").build(),
+                ProductBatchError.builder().index(2).code("NotNull").defaultMessage("must not be null").build());
+    }
+
+    @Test
+    @DisplayName("Update should call repository to patch product")
+    void updateShouldCallRepositoryToPatchProduct(@Random Product product) {
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", product.getName()));
+        when(repository.patch(product.getId(), Map.of("name", product.getName()))).thenReturn(1);
         when(repository.findById(product.getId())).thenReturn(of(product));
-        when(repository.save(product)).thenReturn(product);
-        when(productMapper.merge(any(JsonMergePatch.class), any(Product.class)))
-                .thenReturn(product);
         service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
-        verify(repository).findById(product.getId());
+        verify(repository).patch(product.getId(), Map.of("name", product.getName()));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Update should not call repository to patch product when patch is empty")
+    void updateShouldNotCallRepositoryToPatchProductWhenPatchIsEmpty(@Random Product product) {
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of());
+        when(repository.findById(product.getId())).thenReturn(of(product));
+        service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
+        verify(repository, never()).patch(anyLong(), any());
     }
 
     @Test
     @DisplayName("Update should throw product not found exception")
     void updateShouldThrowProductNotFoundException() {
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", "name"));
+        when(repository.patch(1L, Map.of("name", "name"))).thenReturn(0);
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isInstanceOf(ProductNotFoundException.class);
+        verify(repository, never()).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Update should throw product not found exception when patch is empty")
+    void updateShouldThrowProductNotFoundExceptionWhenPatchIsEmpty() {
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of());
         when(repository.findById(1L)).thenReturn(empty());
         assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
                 .isInstanceOf(ProductNotFoundException.class);
     }
 
     @Test
-    @DisplayName("Update should call repository to save product")
-    void updateShouldCallRepositoryToSaveProduct(@Random Product product) {
-        when(repository.findById(product.getId())).thenReturn(of(product));
-        when(repository.save(product)).thenReturn(product);
-        when(productMapper.merge(any(JsonMergePatch.class), any(Product.class)))
-                .thenReturn(product);
-        service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
-        verify(repository).save(product);
+    @DisplayName("Update should throw constraint violation exception before patching")
+    void updateShouldThrowConstraintViolationExceptionBeforePatching() {
+        var changes = new HashMap<String, Object>();
+        changes.put("name", " ");
+        changes.put("unit", null);
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(changes);
+        assertThatThrownBy(() -> service.update(1L, createMergePatch(createObjectBuilder().build())))
+                .isInstanceOf(ConstraintViolationException.class)
+                .extracting(e -> ((ConstraintViolationException) e).getConstraintViolations().size())
+                .isEqualTo(2);
+        verify(repository, never()).patch(anyLong(), any());
     }
 
     @Test
     @DisplayName("Update should return updated product")
-    void updateShouldReturnUpdatedProduct(@Random Product product, @Random Product updated) {
-        updated.setId(product.getId());
-        when(repository.findById(product.getId())).thenReturn(of(product));
-        when(repository.save(updated)).thenReturn(updated);
-        when(productMapper.merge(any(JsonMergePatch.class), eq(product)))
-                .thenReturn(updated);
-        var result = service.update(product.getId(), createMergePatch(createObjectBuilder().build()));
+    void updateShouldReturnUpdatedProduct(@Random Product updated) {
+        when(productMapper.changes(any(JsonMergePatch.class))).thenReturn(Map.of("name", updated.getName()));
+        when(repository.patch(updated.getId(), Map.of("name", updated.getName()))).thenReturn(1);
+        when(repository.findById(updated.getId())).thenReturn(of(updated));
+        var result = service.update(updated.getId(), createMergePatch(createObjectBuilder().build()));
         assertThat(result).usingRecursiveComparison().isEqualTo(updated);
     }
 
     @Test
-    @DisplayName("Delete should call repository to check if exists")
-    void deleteShouldNotCallRepositoryToCheckIfExists() {
+    @DisplayName("Delete should call repository to purge product")
+    void deleteShouldCallRepositoryToPurgeProduct() {
         service.delete(1L);
-        verify(repository).existsById(1L);
+        verify(repository).purgeById(1L);
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldNotCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(false);
-        service.delete(1L);
-        verify(repository, times(0)).deleteById(1L);
+    @DisplayName("Rebuild id filter should build filter from repository ids")
+    void rebuildIdFilterShouldBuildFilterFromRepositoryIds() {
+        when(repository.count()).thenReturn(2L);
+        when(repository.streamAllIds()).thenReturn(Stream.of(1L, 2L));
+        service.rebuildIdFilter();
+        verify(idFilter).rebuild(eq(2L), any());
+        assertThat(idFilter.mightContain(1L)).isTrue();
+        assertThat(idFilter.mightContain(2L)).isTrue();
     }
 
     @Test
-    @DisplayName("Delete should call repository")
-    void deleteShouldCallRepositoryDelete() {
-        when(repository.existsById(1L)).thenReturn(true);
+    @DisplayName("Delete should not load product")
+    void deleteShouldNotLoadProduct() {
         service.delete(1L);
-        verify(repository).deleteById(1L);
+        verify(repository, never()).existsById(1L);
+        verify(repository, never()).findById(1L);
+        verify(repository, never()).deleteById(1L);
     }
 }
@@ -0,0 +1,4 @@
+insert into product (id, name, description, net_price, currency, unit) values
+  (1, 'Europe IT Consultancy', 'Software development', '350', 'EUR', 'day'),
+  (2, 'UK IT Consultancy', 'Software development', '50', 'GBP', 'hour'),
+  (3, 'USA IT Consultancy', 'Software development', '2000', 'USD', 'week');
@@ -0,0 +1,2 @@
+insert into product (id, name, description, net_price, currency, unit) values
+  (1, 'IT Consultancy', 'Software development', '350', 'EUR', 'day');